@@ -0,0 +1,109 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderLine;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.brewery.model.BeerDto;
+import guru.sfg.brewery.model.BeerOrderDto;
+import guru.sfg.brewery.model.BeerOrderLineDto;
+import guru.sfg.brewery.model.BeerStyleEnum;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Orders shared by the benchmarks, every line for a different beer with all fields filled in.
+ */
+final class BenchmarkOrders {
+
+    private BenchmarkOrders() {
+    }
+
+    static String upc(int line) {
+        return String.format("06312342%05d", line);
+    }
+
+    static BeerDto beer(int line) {
+        return BeerDto.builder()
+                .id(UUID.randomUUID())
+                .version(1)
+                .createdDate(OffsetDateTime.now())
+                .lastModifiedDate(OffsetDateTime.now())
+                .beerName("Mango Bobs " + line)
+                .beerStyle(BeerStyleEnum.IPA)
+                .upc(upc(line))
+                .price(new BigDecimal("12.95"))
+                .quantityOnHand(500)
+                .build();
+    }
+
+    static BeerOrder beerOrder(int lines, BeerOrderStatusEnum status) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        BeerOrder beerOrder = BeerOrder.builder()
+                .id(UUID.randomUUID())
+                .version(1L)
+                .createdDate(now)
+                .lastModifiedDate(now)
+                .customerRef("Tasting Room")
+                .customer(Customer.builder()
+                        .id(UUID.randomUUID())
+                        .customerName("Tasting Room")
+                        .build())
+                .orderStatus(status)
+                .build();
+
+        Set<BeerOrderLine> beerOrderLines = new HashSet<>();
+        for (int i = 0; i < lines; i++) {
+            beerOrderLines.add(BeerOrderLine.builder()
+                    .id(UUID.randomUUID())
+                    .version(1L)
+                    .createdDate(now)
+                    .lastModifiedDate(now)
+                    .beerOrder(beerOrder)
+                    .beerId(UUID.randomUUID())
+                    .upc(upc(i))
+                    .orderQuantity(12)
+                    .quantityAllocated(0)
+                    .build());
+        }
+        beerOrder.setBeerOrderLines(beerOrderLines);
+
+        return beerOrder;
+    }
+
+    static BeerOrderDto beerOrderDto(int lines) {
+        List<BeerOrderLineDto> beerOrderLines = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            beerOrderLines.add(BeerOrderLineDto.builder()
+                    .id(UUID.randomUUID())
+                    .version(1)
+                    .createdDate(OffsetDateTime.now())
+                    .lastModifiedDate(OffsetDateTime.now())
+                    .upc(upc(i))
+                    .beerName("Mango Bobs " + i)
+                    .beerStyle("IPA")
+                    .beerId(UUID.randomUUID())
+                    .orderQuantity(12)
+                    .price(new BigDecimal("12.95"))
+                    .build());
+        }
+
+        return BeerOrderDto.builder()
+                .id(UUID.randomUUID())
+                .version(1)
+                .createdDate(OffsetDateTime.now())
+                .lastModifiedDate(OffsetDateTime.now())
+                .customerId(UUID.randomUUID())
+                .customerRef("Tasting Room")
+                .beerOrderLines(beerOrderLines)
+                .orderStatus("VALIDATED")
+                .build();
+    }
+}
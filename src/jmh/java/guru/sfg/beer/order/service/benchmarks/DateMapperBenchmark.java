@@ -0,0 +1,34 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import guru.sfg.beer.order.service.web.mappers.DateMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of the {@link DateMapper} conversions that every mapped order and order line goes through twice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DateMapperBenchmark {
+
+    private final DateMapper dateMapper = new DateMapper();
+    private final Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+    private final OffsetDateTime offsetDateTime = OffsetDateTime.now();
+
+    @Benchmark
+    public OffsetDateTime asOffsetDateTime() {
+        return dateMapper.asOffsetDateTime(timestamp);
+    }
+
+    @Benchmark
+    public Timestamp asTimestamp() {
+        return dateMapper.asTimestamp(offsetDateTime);
+    }
+}
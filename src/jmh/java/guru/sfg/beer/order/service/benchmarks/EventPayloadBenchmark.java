@@ -0,0 +1,69 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import guru.sfg.beer.order.service.config.EventPayloadConverter;
+import guru.sfg.brewery.model.events.AllocateOrderRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode time of an allocation request for a 20 line order as JSON, the way the JMS JSON
+ * converter maps it (reader and writer looked up per call), vs Smile with the registry type id and
+ * pre-resolved reader and writer. Payload sizes are printed at setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventPayloadBenchmark {
+
+    private static final int ORDER_LINES = 20;
+
+    @Param({"json", "smile"})
+    public String format;
+
+    private ObjectMapper jsonMapper;
+    private EventPayloadConverter converter;
+    private AllocateOrderRequest request;
+    private String json;
+    private byte[] smile;
+
+    @Setup
+    public void setUp() throws IOException {
+        jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        converter = new EventPayloadConverter(new MappingJackson2MessageConverter(),
+                Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build(), true);
+
+        request = AllocateOrderRequest.builder()
+                .beerOrderDto(BenchmarkOrders.beerOrderDto(ORDER_LINES))
+                .build();
+
+        json = jsonMapper.writeValueAsString(request);
+        smile = converter.writeSmile(request);
+
+        System.out.printf("%n%d line allocation request: json %d bytes, smile %d bytes%n", ORDER_LINES,
+                json.getBytes(StandardCharsets.UTF_8).length, smile.length);
+    }
+
+    @Benchmark
+    public Object encode() throws IOException {
+        return "json".equals(format) ? jsonMapper.writeValueAsString(request) : converter.writeSmile(request);
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        if ("json".equals(format)) {
+            return jsonMapper.readValue(json, AllocateOrderRequest.class);
+        }
+
+        return converter.readSmile("allocate-order-request", smile);
+    }
+}
@@ -0,0 +1,84 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.brewery.model.events.AllocateOrderRequest;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to turn an allocation request for a 20 line order into a JMS message and back with the
+ * {@code jacksonJmsMessageConverter} bean, in each payload format. Messages are created on a session of
+ * an embedded in-VM broker but never sent, so only conversion is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JmsMessageConversionBenchmark {
+
+    private static final int ORDER_LINES = 20;
+
+    @Param({"json", "smile"})
+    public String format;
+
+    private EmbeddedActiveMQ broker;
+    private Connection connection;
+    private Session session;
+    private MessageConverter converter;
+    private AllocateOrderRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("in-vm", "vm://0"));
+        broker.start();
+
+        connection = new ActiveMQConnectionFactory("vm://0").createConnection();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+
+        converter = new JmsConfig().jacksonJmsMessageConverter(Jackson2ObjectMapperBuilder.json().build(),
+                Jackson2ObjectMapperBuilder.json(), format);
+        request = AllocateOrderRequest.builder()
+                .beerOrderDto(BenchmarkOrders.beerOrderDto(ORDER_LINES))
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        connection.close();
+        broker.stop();
+    }
+
+    @Benchmark
+    public Message toMessage() throws JMSException {
+        return converter.toMessage(request, session);
+    }
+
+    @Benchmark
+    public Object roundTrip() throws JMSException {
+        Message message = converter.toMessage(request, session);
+
+        if (message instanceof BytesMessage) {
+            // switch the unsent message to read mode, as a received one would be
+            ((BytesMessage) message).reset();
+        }
+
+        return converter.fromMessage(message);
+    }
+}
@@ -0,0 +1,85 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.helpers.NOPAppender;
+import guru.sfg.beer.order.service.config.OrderTrace;
+import guru.sfg.beer.order.service.config.OrderTraceFilter;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.sm.OrderStateChangeInterceptor;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the interceptor's per transition debug line written with string concatenation vs as a
+ * parameterized message, with the logger at INFO (the shipped level) and at DEBUG, plus the same line
+ * inside the per order trace scope with the sampling filter installed and the order not sampled. Lines are
+ * discarded by a no-op appender, so only the cost on the calling thread is measured. Run with
+ * {@code -prof gc} for bytes allocated per line ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+
+    @Param({"info", "debug"})
+    public String level;
+
+    private org.slf4j.Logger log;
+    private UUID orderUuid;
+    private String orderId;
+    private BeerOrderStatusEnum status;
+
+    @Setup
+    public void setUp() {
+        LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.reset();
+
+        NOPAppender<ILoggingEvent> appender = new NOPAppender<>();
+        appender.setContext(loggerContext);
+        appender.start();
+        Logger root = loggerContext.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(appender);
+
+        OrderTraceFilter traceFilter = new OrderTraceFilter();
+        traceFilter.setSampleRate(0.01);
+        traceFilter.start();
+        loggerContext.addTurboFilter(traceFilter);
+
+        Logger logger = loggerContext.getLogger(OrderStateChangeInterceptor.class);
+        logger.setLevel(Level.toLevel(level));
+        log = logger;
+
+        do {
+            orderUuid = UUID.randomUUID();
+        } while (traceFilter.isSampled(orderUuid.toString()));
+        orderId = orderUuid.toString();
+        status = BeerOrderStatusEnum.VALIDATED;
+    }
+
+    @Benchmark
+    public void concatenated() {
+        log.debug("SM Interceptor - Saving state for order id: " + orderId + " Status: " + status);
+    }
+
+    @Benchmark
+    public void parameterized() {
+        log.debug("SM Interceptor - Saving state for order id: {} Status: {}", orderId, status);
+    }
+
+    @Benchmark
+    public void parameterizedInTraceScope() {
+        try (OrderTrace.Scope ignored = OrderTrace.open(orderUuid)) {
+            log.debug("SM Interceptor - Saving state for order id: {} Status: {}", orderId, status);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderEventsEnum;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
+import guru.sfg.beer.order.service.sm.BeerOrderStateMachineConfig;
+import guru.sfg.beer.order.service.sm.BeerOrderStateMachinePool;
+import guru.sfg.beer.order.service.sm.EnumTableStateEngine;
+import guru.sfg.beer.order.service.sm.OrderStateChangeInterceptor;
+import guru.sfg.beer.order.service.sm.OrderStateEngine;
+import guru.sfg.beer.order.service.sm.OrderStatusAwaiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.statemachine.action.Action;
+import org.springframework.statemachine.config.StateMachineFactory;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Events/sec through {@link BeerOrderManagerImpl}: looking up the order, building the event message in
+ * {@code sendBeerOrderEvent} and running the transition on each state engine, with the repository
+ * stubbed so the order never leaves ALLOCATED. Called directly, without the retry and transaction
+ * proxies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderEventBenchmark {
+
+    private static final String[] ACTION_BEAN_NAMES = {"validateOrderAction", "allocateOrderAction",
+            "validationFailedAction", "allocationFailedAction", "deallocateOrderAction"};
+    private static final Action<BeerOrderStatusEnum, BeerOrderEventsEnum> NO_OP_ACTION = context -> { };
+
+    @Param({"spring", "enum-table"})
+    public String engine;
+
+    private AnnotationConfigApplicationContext context;
+    private BeerOrderManagerImpl beerOrderManager;
+    private BeerOrder beerOrder;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        for (String actionName : ACTION_BEAN_NAMES) {
+            context.registerBean(actionName, Action.class, () -> NO_OP_ACTION);
+        }
+        context.register(BeerOrderStateMachineConfig.class);
+        context.refresh();
+        StateMachineFactory<BeerOrderStatusEnum, BeerOrderEventsEnum> stateMachineFactory =
+                context.getBean(StateMachineFactory.class);
+
+        beerOrder = BenchmarkOrders.beerOrder(2, BeerOrderStatusEnum.ALLOCATED);
+
+        BeerOrderRepository beerOrderRepository = mock(BeerOrderRepository.class);
+        when(beerOrderRepository.findById(any())).thenReturn(Optional.of(beerOrder));
+        when(beerOrderRepository.getOne(any())).thenAnswer(invocation -> new BeerOrder());
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        OrderStatusAwaiter orderStatusAwaiter = new OrderStatusAwaiter(meterRegistry, 1000);
+        OrderStateChangeInterceptor interceptor = new OrderStateChangeInterceptor(beerOrderRepository, orderStatusAwaiter,
+                stateMachineFactory, meterRegistry);
+        OrderStateEngine orderStateEngine = "spring".equals(engine)
+                ? new BeerOrderStateMachinePool(stateMachineFactory, interceptor, meterRegistry, 16)
+                : new EnumTableStateEngine(stateMachineFactory, interceptor);
+
+        beerOrderManager = new BeerOrderManagerImpl(orderStateEngine, beerOrderRepository, orderStatusAwaiter);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BeerOrder beerOrderPickedUp() {
+        beerOrderManager.beerOrderPickedUp(beerOrder.getId());
+
+        return beerOrder;
+    }
+}
@@ -0,0 +1,102 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.services.beer.BeerService;
+import guru.sfg.beer.order.service.web.mappers.BeerOrderLineMapperImpl;
+import guru.sfg.beer.order.service.web.mappers.BeerOrderLineMapperImpl_;
+import guru.sfg.beer.order.service.web.mappers.BeerOrderMapper;
+import guru.sfg.beer.order.service.web.mappers.BeerOrderMapperImpl;
+import guru.sfg.beer.order.service.web.mappers.BeerOrderMapperImpl_;
+import guru.sfg.beer.order.service.web.mappers.DateMapper;
+import guru.sfg.brewery.model.BeerDto;
+import guru.sfg.brewery.model.BeerOrderDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to map an order entity to its DTO through the generated MapStruct mappers and their beer lookup
+ * decorators, with a beer service stub answering from memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderMappingBenchmark {
+
+    @Param({"2", "20"})
+    public int lines;
+
+    private AnnotationConfigApplicationContext context;
+    private BeerOrderMapper beerOrderMapper;
+    private BeerOrder beerOrder;
+
+    @Setup
+    public void setUp() {
+        Map<String, BeerDto> beers = new HashMap<>();
+        for (int i = 0; i < lines; i++) {
+            beers.put(BenchmarkOrders.upc(i), BenchmarkOrders.beer(i));
+        }
+
+        // the generated mappers wire their decorators and delegates by qualifier, as in the application
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(BeerService.class, () -> new StubBeerService(beers));
+        context.register(DateMapper.class, BeerOrderLineMapperImpl.class, BeerOrderLineMapperImpl_.class,
+                BeerOrderMapperImpl.class, BeerOrderMapperImpl_.class);
+        context.refresh();
+
+        beerOrderMapper = context.getBean(BeerOrderMapper.class);
+        beerOrder = BenchmarkOrders.beerOrder(lines, BeerOrderStatusEnum.ALLOCATED);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BeerOrderDto beerOrderToDto() {
+        return beerOrderMapper.beerOrderToDto(beerOrder);
+    }
+
+    static class StubBeerService implements BeerService {
+
+        private final Map<String, BeerDto> beersByUpc;
+
+        StubBeerService(Map<String, BeerDto> beersByUpc) {
+            this.beersByUpc = beersByUpc;
+        }
+
+        @Override
+        public Optional<BeerDto> getBeerById(UUID uuid) {
+            return beersByUpc.values().stream().filter(beer -> beer.getId().equals(uuid)).findFirst();
+        }
+
+        @Override
+        public Optional<BeerDto> getBeerByUpc(String upc) {
+            return Optional.ofNullable(beersByUpc.get(upc));
+        }
+
+        @Override
+        public CompletableFuture<Optional<BeerDto>> getBeerByUpcAsync(String upc) {
+            return CompletableFuture.completedFuture(getBeerByUpc(upc));
+        }
+
+        @Override
+        public Map<String, BeerDto> getBeersByUpcs(Collection<String> upcs) {
+            Map<String, BeerDto> found = new HashMap<>();
+            upcs.forEach(upc -> getBeerByUpc(upc).ifPresent(beer -> found.put(upc, beer)));
+            return found;
+        }
+    }
+}
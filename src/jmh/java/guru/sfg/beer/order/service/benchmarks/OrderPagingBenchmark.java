@@ -0,0 +1,130 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of loading one page of a customer's order ids by offset vs by keyset, at page 1 and page
+ * 10,000 of a customer with 1M orders. Runs the same SQL shapes as the repository queries directly
+ * against an in-memory H2 database carrying the (customer_id, created_date, id) index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderPagingBenchmark {
+
+    private static final int ORDERS = 1_000_000;
+    private static final int PAGE_SIZE = 25;
+    private static final String CUSTOMER_ID = "3b7e2a1c-0d55-4f4e-9b43-6b1f4d2c8e10";
+
+    private static final String OFFSET_QUERY = "select id from beer_order where customer_id = ?"
+            + " order by customer_id desc, created_date desc, id desc limit ? offset ?";
+    private static final String KEYSET_QUERY = "select id from beer_order where customer_id = ?"
+            + " and created_date <= ? and (created_date < ? or id < ?)"
+            + " order by customer_id desc, created_date desc, id desc limit ?";
+
+    @Param({"1", "10000"})
+    public int page;
+
+    private Connection connection;
+    private PreparedStatement offsetQuery;
+    private PreparedStatement keysetQuery;
+    private Timestamp cursorCreatedDate;
+    private String cursorId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        // H2 would otherwise hand back the cached result of a repeated identical query
+        connection = DriverManager.getConnection("jdbc:h2:mem:paging;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=0");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table beer_order (id varchar(36) not null primary key,"
+                    + " customer_id varchar(36), created_date timestamp, customer_ref varchar(255))");
+            statement.execute("create index ix_beer_order_customer_created on beer_order (customer_id desc, created_date desc, id desc)");
+            // a few orders share each timestamp so the id tie breaker is exercised
+            statement.execute("insert into beer_order select random_uuid(), '" + CUSTOMER_ID + "',"
+                    + " dateadd('SECOND', x / 4, timestamp '2020-01-01 00:00:00'), 'ref-' || x"
+                    + " from system_range(1, " + ORDERS + ")");
+        }
+
+        offsetQuery = connection.prepareStatement(OFFSET_QUERY);
+        keysetQuery = connection.prepareStatement(KEYSET_QUERY);
+
+        // the keyset cursor for the requested page is the last row of the page before it
+        if (page > 1) {
+            try (PreparedStatement previous = connection.prepareStatement(
+                    "select created_date, id from beer_order where customer_id = ?"
+                            + " order by customer_id desc, created_date desc, id desc limit 1 offset ?")) {
+                previous.setString(1, CUSTOMER_ID);
+                previous.setInt(2, (page - 1) * PAGE_SIZE - 1);
+
+                try (ResultSet resultSet = previous.executeQuery()) {
+                    resultSet.next();
+                    cursorCreatedDate = resultSet.getTimestamp(1);
+                    cursorId = resultSet.getString(2);
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public List<String> offsetPage() throws SQLException {
+        offsetQuery.setString(1, CUSTOMER_ID);
+        offsetQuery.setInt(2, PAGE_SIZE);
+        offsetQuery.setInt(3, (page - 1) * PAGE_SIZE);
+
+        return ids(offsetQuery);
+    }
+
+    @Benchmark
+    public List<String> keysetPage() throws SQLException {
+        if (cursorId == null) {
+            offsetQuery.setString(1, CUSTOMER_ID);
+            offsetQuery.setInt(2, PAGE_SIZE);
+            offsetQuery.setInt(3, 0);
+
+            return ids(offsetQuery);
+        }
+
+        keysetQuery.setString(1, CUSTOMER_ID);
+        keysetQuery.setTimestamp(2, cursorCreatedDate);
+        keysetQuery.setTimestamp(3, cursorCreatedDate);
+        keysetQuery.setString(4, cursorId);
+        keysetQuery.setInt(5, PAGE_SIZE);
+
+        return ids(keysetQuery);
+    }
+
+    private List<String> ids(PreparedStatement query) throws SQLException {
+        List<String> ids = new ArrayList<>(PAGE_SIZE);
+
+        try (ResultSet resultSet = query.executeQuery()) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getString(1));
+            }
+        }
+
+        return ids;
+    }
+}
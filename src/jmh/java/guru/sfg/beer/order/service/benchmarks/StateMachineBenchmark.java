@@ -0,0 +1,112 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderEventsEnum;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
+import guru.sfg.beer.order.service.sm.BeerOrderStateMachineConfig;
+import guru.sfg.beer.order.service.sm.BeerOrderStateMachinePool;
+import guru.sfg.beer.order.service.sm.EnumTableStateEngine;
+import guru.sfg.beer.order.service.sm.OrderStateChangeInterceptor;
+import guru.sfg.beer.order.service.sm.OrderStatusAwaiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.action.Action;
+import org.springframework.statemachine.config.StateMachineFactory;
+import org.springframework.statemachine.support.DefaultStateMachineContext;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Events/sec of building a state machine from the factory for every event vs reusing pooled machines
+ * vs the compiled enum transition table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateMachineBenchmark {
+
+    private static final String[] ACTION_BEAN_NAMES = {"validateOrderAction", "allocateOrderAction",
+            "validationFailedAction", "allocationFailedAction", "deallocateOrderAction"};
+    private static final Action<BeerOrderStatusEnum, BeerOrderEventsEnum> NO_OP_ACTION = context -> { };
+
+    private AnnotationConfigApplicationContext context;
+    private StateMachineFactory<BeerOrderStatusEnum, BeerOrderEventsEnum> stateMachineFactory;
+    private OrderStateChangeInterceptor interceptor;
+    private BeerOrderStateMachinePool pool;
+    private EnumTableStateEngine enumTableEngine;
+    private UUID orderId;
+    private Message<BeerOrderEventsEnum> message;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        // beans registered by hand so nothing in this package is picked up by component scanning
+        context = new AnnotationConfigApplicationContext();
+        for (String actionName : ACTION_BEAN_NAMES) {
+            context.registerBean(actionName, Action.class, () -> NO_OP_ACTION);
+        }
+        context.register(BeerOrderStateMachineConfig.class);
+        context.refresh();
+        stateMachineFactory = context.getBean(StateMachineFactory.class);
+
+        BeerOrderRepository beerOrderRepository = mock(BeerOrderRepository.class);
+        when(beerOrderRepository.getOne(any())).thenAnswer(invocation -> new BeerOrder());
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        interceptor = new OrderStateChangeInterceptor(beerOrderRepository, new OrderStatusAwaiter(meterRegistry, 1000),
+                stateMachineFactory, meterRegistry);
+        pool = new BeerOrderStateMachinePool(stateMachineFactory, interceptor, meterRegistry, 16);
+        enumTableEngine = new EnumTableStateEngine(stateMachineFactory, interceptor);
+
+        orderId = UUID.randomUUID();
+        message = MessageBuilder.withPayload(BeerOrderEventsEnum.VALIDATION_PASSED)
+                .setHeader(BeerOrderManagerImpl.ORDER_ID_HEADER, orderId.toString())
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean factoryBuildPerEvent() {
+        StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> sm = stateMachineFactory.getStateMachine(orderId);
+
+        sm.stop();
+
+        sm.getStateMachineAccessor()
+                .doWithAllRegions(sma -> {
+                    sma.addStateMachineInterceptor(interceptor);
+                    sma.resetStateMachine(new DefaultStateMachineContext<>(BeerOrderStatusEnum.VALIDATION_PENDING, null, null, null));
+                });
+
+        sm.start();
+
+        return sm.sendEvent(message);
+    }
+
+    @Benchmark
+    public boolean pooledMachine() {
+        return pool.sendEvent(BeerOrderStatusEnum.VALIDATION_PENDING, message);
+    }
+
+    @Benchmark
+    public boolean enumTable() {
+        return enumTableEngine.sendEvent(BeerOrderStatusEnum.VALIDATION_PENDING, message);
+    }
+}
@@ -0,0 +1,141 @@
+package guru.sfg.beer.order.service.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order insert and lookup latency with varchar(36) random UUID keys vs binary(16) time ordered keys, on
+ * H2 in MySQL mode standing in for a local database. Each table is preloaded with 200k orders of two
+ * lines; an insert adds one order with two lines, a lookup joins an existing order to its lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UuidKeyBenchmark {
+
+    private static final int PRELOADED_ORDERS = 200_000;
+
+    @Param({"char", "binary"})
+    public String storage;
+
+    private Connection connection;
+    private PreparedStatement insertOrder;
+    private PreparedStatement insertLine;
+    private PreparedStatement lookup;
+    private UUID customerId;
+    private UUID[] orderIds;
+
+    @Setup
+    public void setUp() throws SQLException {
+        String keyType = binary() ? "binary(16)" : "varchar(36)";
+
+        connection = DriverManager.getConnection("jdbc:h2:mem:uuid-keys;MODE=MySQL;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=0");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table customer (id " + keyType + " not null primary key, customer_name varchar(255))");
+            statement.execute("create table beer_order (id " + keyType + " not null primary key,"
+                    + " customer_id " + keyType + " references customer (id), created_date timestamp,"
+                    + " order_status integer, customer_ref varchar(255))");
+            statement.execute("create table beer_order_line (id " + keyType + " not null primary key,"
+                    + " beer_order_id " + keyType + " references beer_order (id), upc varchar(255), order_quantity integer)");
+        }
+
+        insertOrder = connection.prepareStatement("insert into beer_order values (?, ?, current_timestamp, 0, 'ref')");
+        insertLine = connection.prepareStatement("insert into beer_order_line values (?, ?, '0631234200036', 1)");
+        lookup = connection.prepareStatement("select o.id, o.order_status, l.upc, l.order_quantity from beer_order o"
+                + " join beer_order_line l on l.beer_order_id = o.id where o.id = ?");
+
+        customerId = newId();
+        try (PreparedStatement insertCustomer = connection.prepareStatement("insert into customer values (?, 'Tasting Room')")) {
+            bindId(insertCustomer, 1, customerId);
+            insertCustomer.executeUpdate();
+        }
+
+        orderIds = new UUID[PRELOADED_ORDERS];
+        for (int i = 0; i < PRELOADED_ORDERS; i++) {
+            orderIds[i] = insertOrderWithLines();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public UUID insert() throws SQLException {
+        return insertOrderWithLines();
+    }
+
+    @Benchmark
+    public int lookup() throws SQLException {
+        bindId(lookup, 1, orderIds[ThreadLocalRandom.current().nextInt(PRELOADED_ORDERS)]);
+
+        int lines = 0;
+        try (ResultSet resultSet = lookup.executeQuery()) {
+            while (resultSet.next()) {
+                lines += resultSet.getInt(4);
+            }
+        }
+
+        return lines;
+    }
+
+    private UUID insertOrderWithLines() throws SQLException {
+        UUID orderId = newId();
+
+        bindId(insertOrder, 1, orderId);
+        bindId(insertOrder, 2, customerId);
+        insertOrder.executeUpdate();
+
+        for (int line = 0; line < 2; line++) {
+            bindId(insertLine, 1, newId());
+            bindId(insertLine, 2, orderId);
+            insertLine.executeUpdate();
+        }
+
+        return orderId;
+    }
+
+    private boolean binary() {
+        return "binary".equals(storage);
+    }
+
+    // same layout as OrderIdGenerator's time ordered ids: millis, version 7, random bits
+    private UUID newId() {
+        if (!binary()) {
+            return UUID.randomUUID();
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new UUID((System.currentTimeMillis() << 16) | 0x7000L | (random.nextLong() & 0x0FFFL),
+                (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+    }
+
+    private void bindId(PreparedStatement statement, int index, UUID id) throws SQLException {
+        if (binary()) {
+            statement.setBytes(index, ByteBuffer.allocate(16)
+                    .putLong(id.getMostSignificantBits())
+                    .putLong(id.getLeastSignificantBits())
+                    .array());
+        } else {
+            statement.setString(index, id.toString());
+        }
+    }
+}
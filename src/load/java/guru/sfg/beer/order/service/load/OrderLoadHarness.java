@@ -0,0 +1,306 @@
+package guru.sfg.beer.order.service.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.repositories.CustomerRepository;
+import guru.sfg.beer.order.service.services.beer.BeerServiceImpl;
+import guru.sfg.beer.order.service.sm.OrderStatusAwaiter;
+import guru.sfg.brewery.model.BeerDto;
+import guru.sfg.brewery.model.BeerOrderDto;
+import guru.sfg.brewery.model.BeerOrderLineDto;
+import guru.sfg.brewery.model.BeerStyleEnum;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.github.jenspiegsa.wiremockextension.ManagedWireMockServer.with;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Places orders through the REST API at a fixed rate against H2, embedded Artemis and the test
+ * validation and allocation listeners, with WireMock standing in for the beer service, and reports the
+ * time from each order's scheduled send to its ALLOCATED status as an HDR histogram.
+ *
+ * Orders are sent open loop: latency is measured from when an order was due, not when a client thread
+ * got round to sending it, so a stalled service shows up in the percentiles. Orders placed during the
+ * warmup are left out of the report. Run with {@code ./mvnw -Pload test} and tune with
+ * {@code -Dload.orders-per-second}, {@code -Dload.duration-seconds}, {@code -Dload.warmup-seconds},
+ * {@code -Dload.lines-per-order}, {@code -Dload.distinct-upcs} and {@code -Dload.beer-service-latency-ms};
+ * beer lookups are cached, so lower {@code sfg.beer-order.beer-cache.ttl-seconds} for the beer service
+ * latency to keep mattering. The percentile distribution is written to {@code target/load-report.hgrm}.
+ *
+ * The stand-in listeners run on the default listener container factory, which is given enough consumers
+ * here that they are not the bottleneck, and debug logging is turned off.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jms.listener.concurrency=4",
+        "spring.jms.listener.max-concurrency=16",
+        "logging.level.guru=info"
+})
+public class OrderLoadHarness {
+
+    static final Set<BeerOrderStatusEnum> FAILED_STATUSES = Set.of(BeerOrderStatusEnum.VALIDATION_EXCEPTION,
+            BeerOrderStatusEnum.ALLOCATION_EXCEPTION, BeerOrderStatusEnum.CANCELLED);
+
+    @Value("${load.orders-per-second:50}")
+    int ordersPerSecond;
+
+    @Value("${load.duration-seconds:30}")
+    int durationSeconds;
+
+    @Value("${load.warmup-seconds:5}")
+    int warmupSeconds;
+
+    @Value("${load.drain-timeout-seconds:30}")
+    int drainTimeoutSeconds;
+
+    @Value("${load.lines-per-order:3}")
+    int linesPerOrder;
+
+    @Value("${load.distinct-upcs:100}")
+    int distinctUpcs;
+
+    @Value("${load.beer-service-latency-ms:20}")
+    int beerServiceLatencyMillis;
+
+    @LocalServerPort
+    int port;
+
+    @SpyBean
+    OrderStatusAwaiter orderStatusAwaiter;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    WireMockServer beerService;
+
+    final Map<UUID, Long> dueAt = new ConcurrentHashMap<>();
+    final Map<UUID, Long> allocatedAt = new ConcurrentHashMap<>();
+    final Map<UUID, BeerOrderStatusEnum> failed = new ConcurrentHashMap<>();
+    final AtomicInteger httpErrors = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        List<BeerDto> beers = new ArrayList<>(distinctUpcs);
+        for (int i = 0; i < distinctUpcs; i++) {
+            beers.add(BeerDto.builder()
+                    .id(UUID.randomUUID())
+                    .beerName("Load Beer " + i)
+                    .beerStyle(BeerStyleEnum.PALE_ALE)
+                    .upc(upc(i))
+                    .price(new BigDecimal("9.95"))
+                    .build());
+        }
+
+        beerService = with(wireMockConfig().port(8083).containerThreads(64));
+        beerService.start();
+        beerService.stubFor(get(urlPathMatching(BeerServiceImpl.BEER_UPC_PATH_V1 + ".*"))
+                .willReturn(okJson(objectMapper.writeValueAsString(beers.get(0)))
+                        .withFixedDelay(beerServiceLatencyMillis)));
+        beerService.stubFor(post(urlPathEqualTo(BeerServiceImpl.BEER_UPCS_PATH_V1))
+                .willReturn(okJson(objectMapper.writeValueAsString(beers))
+                        .withFixedDelay(beerServiceLatencyMillis)));
+
+        doAnswer(invocation -> {
+            UUID orderId = invocation.getArgument(0);
+            BeerOrderStatusEnum status = invocation.getArgument(1);
+
+            if (status == BeerOrderStatusEnum.ALLOCATED) {
+                allocatedAt.putIfAbsent(orderId, System.nanoTime());
+            } else if (FAILED_STATUSES.contains(status)) {
+                failed.putIfAbsent(orderId, status);
+            }
+
+            return invocation.callRealMethod();
+        }).when(orderStatusAwaiter).statusChanged(any(), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        beerService.stop();
+    }
+
+    @Test
+    void placeOrdersAtFixedRate() throws Exception {
+        Customer customer = customerRepository.save(Customer.builder()
+                .customerName("Load Customer")
+                .apiKey(UUID.randomUUID())
+                .build());
+        URI ordersUri = URI.create("http://localhost:" + port + "/api/v1/customers/" + customer.getId() + "/orders");
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(16);
+        HttpClient httpClient = HttpClient.newBuilder()
+                .executor(clientExecutor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        int totalOrders = ordersPerSecond * durationSeconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ordersPerSecond;
+        AtomicLong sent = new AtomicLong();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+
+        scheduler.scheduleAtFixedRate(() -> {
+            long sequence = sent.getAndIncrement();
+            if (sequence >= totalOrders) {
+                return;
+            }
+
+            long due = start + sequence * intervalNanos;
+            httpClient.sendAsync(orderRequest(ordersUri), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, failure) -> {
+                        if (failure != null || response.statusCode() != 201) {
+                            httpErrors.incrementAndGet();
+                            return;
+                        }
+                        try {
+                            dueAt.put(objectMapper.readValue(response.body(), BeerOrderDto.class).getId(), due);
+                        } catch (IOException e) {
+                            httpErrors.incrementAndGet();
+                        }
+                    });
+        }, 0, intervalNanos, TimeUnit.NANOSECONDS);
+
+        while (sent.get() < totalOrders) {
+            Thread.sleep(100);
+        }
+        scheduler.shutdown();
+        long sendEnd = System.nanoTime();
+
+        long drainDeadline = sendEnd + TimeUnit.SECONDS.toNanos(drainTimeoutSeconds);
+        while (dueAt.size() + httpErrors.get() < totalOrders
+                || allocatedAt.size() + failed.size() < dueAt.size()) {
+            if (System.nanoTime() > drainDeadline) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+
+        clientExecutor.shutdown();
+        report(totalOrders, measureFrom, start);
+
+        assertThat(allocatedAt).isNotEmpty();
+    }
+
+    private HttpRequest orderRequest(URI ordersUri) {
+        List<BeerOrderLineDto> lines = new ArrayList<>(linesPerOrder);
+        for (int i = 0; i < linesPerOrder; i++) {
+            lines.add(BeerOrderLineDto.builder()
+                    .upc(upc(ThreadLocalRandom.current().nextInt(distinctUpcs)))
+                    .orderQuantity(1 + ThreadLocalRandom.current().nextInt(12))
+                    .build());
+        }
+
+        try {
+            return HttpRequest.newBuilder(ordersUri)
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(30))
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(BeerOrderDto.builder()
+                            .customerRef("load-test")
+                            .beerOrderLines(lines)
+                            .build())))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void report(int totalOrders, long measureFrom, long start) throws IOException {
+        Histogram histogram = new Histogram(TimeUnit.MINUTES.toMicros(5), 3);
+        int measured = 0;
+        int timedOut = 0;
+        long lastAllocated = start;
+
+        for (Map.Entry<UUID, Long> order : dueAt.entrySet()) {
+            Long allocated = allocatedAt.get(order.getKey());
+
+            if (allocated == null) {
+                if (!failed.containsKey(order.getKey())) {
+                    timedOut++;
+                }
+                continue;
+            }
+
+            lastAllocated = Math.max(lastAllocated, allocated);
+            if (order.getValue() >= measureFrom) {
+                histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(Math.max(0, allocated - order.getValue())));
+                measured++;
+            }
+        }
+
+        double elapsedSeconds = (lastAllocated - start) / 1e9;
+
+        System.out.printf("%nOrder load: %d orders at %d/s over %ds (%ds warmup), %d lines per order, beer service latency %dms%n",
+                totalOrders, ordersPerSecond, durationSeconds, warmupSeconds, linesPerOrder, beerServiceLatencyMillis);
+        System.out.printf("Allocated %d orders, throughput %.1f orders/s%n", allocatedAt.size(),
+                elapsedSeconds > 0 ? allocatedAt.size() / elapsedSeconds : 0);
+        System.out.printf("Errors: %d http, %d failed (%s), %d not allocated within %ds%n",
+                httpErrors.get(), failed.size(),
+                failed.values().stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting())),
+                timedOut, drainTimeoutSeconds);
+        System.out.printf("Time to ALLOCATED over %d orders (ms): p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n%n",
+                measured, percentile(histogram, 50), percentile(histogram, 90), percentile(histogram, 99),
+                percentile(histogram, 99.9), histogram.getMaxValue() / 1000.0);
+
+        Path reportFile = Paths.get("target", "load-report.hgrm");
+        Files.createDirectories(reportFile.getParent());
+        try (PrintStream out = new PrintStream(new FileOutputStream(reportFile.toFile()))) {
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+
+    private static double percentile(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static String upc(int index) {
+        return String.format("07312342%05d", index);
+    }
+}
@@ -0,0 +1,77 @@
+package guru.sfg.beer.order.service.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * One limit on the blocking work running at once in the {@code virtual} execution mode, shared by the
+ * JMS listener containers, the async executor and the beer lookup fan-out. Virtual threads are cheap
+ * enough to start one per message or task, so the limit sits on the work instead: each listener
+ * invocation, async task or lookup holds a permit while it runs, and the permits are sized to the
+ * connection pool so the service as a whole, rather than each container or executor on its own, stays
+ * within it.
+ *
+ * Work that waits on other limited work, such as a listener joining beer lookups running on the fan-out
+ * executor, hands its permit back while it waits with {@link #awaitOther(Supplier)}. Otherwise listeners
+ * holding every permit would wait forever for lookups that cannot get one.
+ */
+public class BlockingWorkLimiter {
+
+    private final Semaphore permits;
+    private final ThreadLocal<Boolean> holdingPermit = new ThreadLocal<>();
+
+    public BlockingWorkLimiter(int maxConcurrency, MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrency, true);
+
+        Gauge.builder("beer.order.virtual.permits.available", permits, Semaphore::availablePermits)
+                .description("Blocking work permits not held by a listener or async task")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits for a permit, to be given back with {@link #release()} once the work is done.
+     */
+    public void acquire() {
+        permits.acquireUninterruptibly();
+        holdingPermit.set(Boolean.TRUE);
+    }
+
+    public void release() {
+        holdingPermit.remove();
+        permits.release();
+    }
+
+    /**
+     * Runs the wait for other limited work. If the calling thread holds a permit, the permit is released
+     * for the duration of the wait and acquired again afterwards.
+     */
+    public <T> T awaitOther(Supplier<T> wait) {
+        if (holdingPermit.get() == null) {
+            return wait.get();
+        }
+
+        release();
+        try {
+            return wait.get();
+        } finally {
+            acquire();
+        }
+    }
+
+    /**
+     * Wraps the task so that it runs holding a permit.
+     */
+    public Runnable decorate(Runnable task) {
+        return () -> {
+            acquire();
+            try {
+                task.run();
+            } finally {
+                release();
+            }
+        };
+    }
+}
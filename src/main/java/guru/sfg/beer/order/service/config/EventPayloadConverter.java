@@ -0,0 +1,164 @@
+package guru.sfg.beer.order.service.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import guru.sfg.brewery.model.events.AllocateOrderRequest;
+import guru.sfg.brewery.model.events.AllocateOrderResponse;
+import guru.sfg.brewery.model.events.AllocationFailureEvent;
+import guru.sfg.brewery.model.events.DeallocateOrderRequest;
+import guru.sfg.brewery.model.events.ValidateOrderRequest;
+import guru.sfg.brewery.model.events.ValidateOrderResult;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts order events to and from JMS messages as JSON text or Smile encoded bytes. Incoming messages
+ * are read in whichever format their {@code _contentType} property names, so consumers and producers can
+ * switch formats one at a time; outgoing events are written as Smile only when the {@code smile} payload
+ * format is selected, and everything else goes through the JSON converter.
+ *
+ * A Smile message carries a short type id from a fixed registry of the {@code guru.sfg.brewery.model.events}
+ * classes in its {@code _type} property instead of a class name, and is read and written with an
+ * {@link ObjectReader} and {@link ObjectWriter} resolved once per type.
+ */
+public class EventPayloadConverter implements MessageConverter {
+
+    public static final String TYPE_ID_PROPERTY = "_type";
+    public static final String CONTENT_TYPE_PROPERTY = "_contentType";
+    public static final String SMILE_CONTENT_TYPE = "application/x-jackson-smile";
+    public static final String SMILE_FORMAT = "smile";
+
+    // ids are part of the wire format, add new types but never change or reuse an id
+    private static final Map<String, Class<?>> EVENT_TYPES = Map.of(
+            "validate-order-request", ValidateOrderRequest.class,
+            "validate-order-result", ValidateOrderResult.class,
+            "allocate-order-request", AllocateOrderRequest.class,
+            "allocate-order-response", AllocateOrderResponse.class,
+            "allocation-failure", AllocationFailureEvent.class,
+            "deallocate-order-request", DeallocateOrderRequest.class);
+
+    private final MessageConverter jsonConverter;
+    private final boolean writeSmile;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final JsonFactory smileFactory;
+    private final Map<String, ObjectReader> readers = new HashMap<>();
+    private final Map<Class<?>, ObjectWriter> writers = new HashMap<>();
+    private final Map<String, String> typeIds = new HashMap<>();
+
+    /**
+     * @param jsonConverter converter for JSON text messages, and for any payload outside the registry
+     * @param smileMapper   mapper with a Smile factory, configured like the JSON mapper
+     * @param writeSmile    whether registered events are sent as Smile
+     */
+    public EventPayloadConverter(MessageConverter jsonConverter, ObjectMapper smileMapper, boolean writeSmile) {
+        this.jsonConverter = jsonConverter;
+        this.writeSmile = writeSmile;
+        this.smileFactory = smileMapper.getFactory();
+
+        EVENT_TYPES.forEach((typeId, type) -> {
+            readers.put(typeId, smileMapper.readerFor(type));
+            writers.put(type, smileMapper.writerFor(type));
+            typeIds.put(type.getName(), typeId);
+        });
+    }
+
+    @Override
+    public Message toMessage(Object object, Session session) throws JMSException {
+        String typeId = typeIds.get(object.getClass().getName());
+
+        if (!writeSmile || typeId == null) {
+            return jsonConverter.toMessage(object, session);
+        }
+
+        try {
+            return smileMessage(writeSmile(object), typeId, session);
+        } catch (IOException e) {
+            throw new MessageConversionException("Could not write " + typeId + " as Smile", e);
+        }
+    }
+
+    /**
+     * Creates a message for a payload already serialized as JSON, such as an outbox row, transcoding it
+     * token by token to Smile without binding it to its class when the event is sent as Smile.
+     */
+    public Message toMessage(String json, String payloadType, Session session) throws JMSException {
+        String typeId = typeIds.get(payloadType);
+
+        if (!writeSmile || typeId == null) {
+            TextMessage message = session.createTextMessage(json);
+            message.setStringProperty(TYPE_ID_PROPERTY, payloadType);
+            return message;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length());
+        try (JsonParser parser = jsonFactory.createParser(json);
+             JsonGenerator generator = smileFactory.createGenerator(bytes)) {
+            parser.nextToken();
+            generator.copyCurrentStructure(parser);
+        } catch (IOException e) {
+            throw new MessageConversionException("Could not transcode " + typeId + " to Smile", e);
+        }
+
+        return smileMessage(bytes.toByteArray(), typeId, session);
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException {
+        if (!(message instanceof BytesMessage) || !SMILE_CONTENT_TYPE.equals(message.getStringProperty(CONTENT_TYPE_PROPERTY))) {
+            return jsonConverter.fromMessage(message);
+        }
+
+        String typeId = message.getStringProperty(TYPE_ID_PROPERTY);
+        BytesMessage bytesMessage = (BytesMessage) message;
+        byte[] payload = new byte[(int) bytesMessage.getBodyLength()];
+        bytesMessage.readBytes(payload);
+
+        return readSmile(typeId, payload);
+    }
+
+    public byte[] writeSmile(Object event) throws IOException {
+        ObjectWriter writer = writers.get(event.getClass());
+
+        if (writer == null) {
+            throw new MessageConversionException("No Smile type id registered for " + event.getClass().getName());
+        }
+
+        return writer.writeValueAsBytes(event);
+    }
+
+    public Object readSmile(String typeId, byte[] payload) {
+        ObjectReader reader = readers.get(typeId);
+
+        if (reader == null) {
+            throw new MessageConversionException("Unknown Smile type id: " + typeId);
+        }
+
+        try {
+            return reader.readValue(payload);
+        } catch (IOException e) {
+            throw new MessageConversionException("Could not read " + typeId + " from Smile", e);
+        }
+    }
+
+    private Message smileMessage(byte[] payload, String typeId, Session session) throws JMSException {
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(payload);
+        message.setStringProperty(CONTENT_TYPE_PROPERTY, SMILE_CONTENT_TYPE);
+        message.setStringProperty(TYPE_ID_PROPERTY, typeId);
+        return message;
+    }
+}
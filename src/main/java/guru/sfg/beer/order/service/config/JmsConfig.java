@@ -1,15 +1,30 @@
 package guru.sfg.beer.order.service.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jms.DefaultJmsListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.connection.CachingConnectionFactory;
 import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
-import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.jms.support.converter.MessageType;
+import org.springframework.util.ReflectionUtils;
+
+import javax.jms.ConnectionFactory;
+import java.lang.reflect.Field;
+import java.util.Locale;
 
 /**
  * Created by jt on 2019-07-20.
  */
+@Slf4j
 @Configuration
 public class JmsConfig {
 
@@ -20,12 +35,174 @@ public class JmsConfig {
     public static final String ALLOCATE_FAILURE_QUEUE = "allocation-failure";
     public static final String DEALLOCATE_ORDER_QUEUE = "deallocate-order" ;
 
-    @Bean // Serialize message content to json using TextMessage
-    public MessageConverter jacksonJmsMessageConverter(ObjectMapper objectMapper) {
+    public static final String VALIDATE_ORDER_RESPONSE_LISTENER_FACTORY = "validateOrderResponseListenerFactory";
+    public static final String ALLOCATE_ORDER_RESPONSE_LISTENER_FACTORY = "allocateOrderResponseListenerFactory";
+
+    @Bean // Serialize message content to json using TextMessage, or to Smile using BytesMessage
+    public EventPayloadConverter jacksonJmsMessageConverter(ObjectMapper objectMapper,
+            Jackson2ObjectMapperBuilder objectMapperBuilder,
+            @Value("${sfg.beer-order.jms.payload-format:json}") String payloadFormat) {
         MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
         converter.setTargetType(MessageType.TEXT);
-        converter.setTypeIdPropertyName("_type");
+        converter.setTypeIdPropertyName(EventPayloadConverter.TYPE_ID_PROPERTY);
         converter.setObjectMapper(objectMapper);
-        return converter;
+
+        // Boot's builder, so the Smile mapper shares the spring.jackson settings of the JSON mapper
+        ObjectMapper smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+
+        return new EventPayloadConverter(converter, smileMapper, EventPayloadConverter.SMILE_FORMAT.equals(payloadFormat));
+    }
+
+    /**
+     * Boot's listener container factory, except that in the {@code virtual} execution mode each
+     * listener consumer runs on its own virtual thread, a container scales to at most
+     * {@code sfg.beer-order.virtual.max-concurrency} consumers, and messages are processed holding a
+     * permit of the {@link BlockingWorkLimiter} shared with every other container and the async executor.
+     */
+    @Bean
+    public DefaultJmsListenerContainerFactory jmsListenerContainerFactory(
+            DefaultJmsListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${" + TaskConfig.EXECUTION_MODE_PROPERTY + ":platform}") String executionMode,
+            @Value("${sfg.beer-order.virtual.max-concurrency:5}") int maxConcurrency,
+            BlockingWorkLimiter blockingWorkLimiter, MeterRegistry meterRegistry) {
+        if (!TaskConfig.VIRTUAL_MODE.equals(executionMode)) {
+            DefaultJmsListenerContainerFactory factory = new DefaultJmsListenerContainerFactory();
+            configurer.configure(factory, connectionFactory);
+            return factory;
+        }
+
+        // the default container's idle limits, with the shared limiter
+        MeteredJmsListenerContainerFactory factory = new MeteredJmsListenerContainerFactory(meterRegistry, 1, 1);
+        configurer.configure(factory, connectionFactory);
+        factory.setTaskExecutor(new SimpleAsyncTaskExecutor(VirtualThreads.threadFactory("jms-listener-")));
+        factory.setConcurrency("1-" + maxConcurrency);
+        factory.setBlockingWorkLimiter(blockingWorkLimiter);
+
+        return factory;
+    }
+
+    @Bean(VALIDATE_ORDER_RESPONSE_LISTENER_FACTORY)
+    public MeteredJmsListenerContainerFactory validateOrderResponseListenerFactory(
+            DefaultJmsListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${sfg.beer-order.jms.listener.validate-order-response.concurrency:1-4}") String concurrency,
+            @Value("${sfg.beer-order.jms.listener.validate-order-response.consumer-window-size:-1}") int consumerWindowSize,
+            @Value("${sfg.beer-order.jms.listener.cache-level:consumer}") String cacheLevel,
+            @Value("${sfg.beer-order.jms.listener.idle-consumer-limit:1}") int idleConsumerLimit,
+            @Value("${sfg.beer-order.jms.listener.idle-task-execution-limit:5}") int idleTaskExecutionLimit,
+            @Value("${" + TaskConfig.EXECUTION_MODE_PROPERTY + ":platform}") String executionMode,
+            @Value("${sfg.beer-order.virtual.max-concurrency:5}") int maxConcurrency,
+            BlockingWorkLimiter blockingWorkLimiter, MeterRegistry meterRegistry) {
+        return responseListenerFactory(configurer, connectionFactory, concurrency, consumerWindowSize, cacheLevel,
+                idleConsumerLimit, idleTaskExecutionLimit, executionMode, maxConcurrency, blockingWorkLimiter,
+                meterRegistry);
+    }
+
+    @Bean(ALLOCATE_ORDER_RESPONSE_LISTENER_FACTORY)
+    public MeteredJmsListenerContainerFactory allocateOrderResponseListenerFactory(
+            DefaultJmsListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${sfg.beer-order.jms.listener.allocate-order-response.concurrency:1-4}") String concurrency,
+            @Value("${sfg.beer-order.jms.listener.allocate-order-response.consumer-window-size:-1}") int consumerWindowSize,
+            @Value("${sfg.beer-order.jms.listener.cache-level:consumer}") String cacheLevel,
+            @Value("${sfg.beer-order.jms.listener.idle-consumer-limit:1}") int idleConsumerLimit,
+            @Value("${sfg.beer-order.jms.listener.idle-task-execution-limit:5}") int idleTaskExecutionLimit,
+            @Value("${" + TaskConfig.EXECUTION_MODE_PROPERTY + ":platform}") String executionMode,
+            @Value("${sfg.beer-order.virtual.max-concurrency:5}") int maxConcurrency,
+            BlockingWorkLimiter blockingWorkLimiter, MeterRegistry meterRegistry) {
+        return responseListenerFactory(configurer, connectionFactory, concurrency, consumerWindowSize, cacheLevel,
+                idleConsumerLimit, idleTaskExecutionLimit, executionMode, maxConcurrency, blockingWorkLimiter,
+                meterRegistry);
+    }
+
+    /**
+     * Builds the listener container factory for one response queue, so validation and allocation
+     * responses scale between their own minimum and maximum consumers regardless of how fast requests
+     * are published. Containers cache the connection, session and consumer ({@code cache-level}) and
+     * publish {@code beer.order.jms.listener.*} meters tagged with the queue.
+     *
+     * A {@code consumer-window-size} of zero or more gives the queue its own Artemis connection factory
+     * with that many bytes buffered per consumer: 0 disables prefetch so a message waits on the broker
+     * for whichever consumer is free, while -1 keeps the shared connection factory and its default of 1MB.
+     *
+     * In the {@code virtual} execution mode consumers run on virtual threads and process messages holding
+     * a permit of the shared {@link BlockingWorkLimiter}, and the concurrency range is capped at
+     * {@code sfg.beer-order.virtual.max-concurrency} consumers, as for the other listener containers.
+     */
+    private MeteredJmsListenerContainerFactory responseListenerFactory(
+            DefaultJmsListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            String concurrency, int consumerWindowSize, String cacheLevel, int idleConsumerLimit,
+            int idleTaskExecutionLimit, String executionMode, int maxConcurrency,
+            BlockingWorkLimiter blockingWorkLimiter, MeterRegistry meterRegistry) {
+        MeteredJmsListenerContainerFactory factory = new MeteredJmsListenerContainerFactory(meterRegistry,
+                idleConsumerLimit, idleTaskExecutionLimit);
+        configurer.configure(factory, connectionFactory);
+
+        factory.setConcurrency(concurrency);
+        factory.setCacheLevelName("CACHE_" + cacheLevel.toUpperCase(Locale.ROOT));
+
+        if (consumerWindowSize >= 0) {
+            ActiveMQConnectionFactory artemisConnectionFactory = artemisConnectionFactory(connectionFactory);
+
+            if (artemisConnectionFactory != null) {
+                factory.setDedicatedConnectionFactory(
+                        consumerConnectionFactory(artemisConnectionFactory, consumerWindowSize));
+            } else {
+                log.warn("Consumer window size needs an Artemis connection factory, ignoring it for {}",
+                        connectionFactory.getClass().getName());
+            }
+        }
+
+        if (TaskConfig.VIRTUAL_MODE.equals(executionMode)) {
+            factory.setTaskExecutor(new SimpleAsyncTaskExecutor(VirtualThreads.threadFactory("jms-listener-")));
+            factory.setConcurrency(capConcurrency(concurrency, maxConcurrency));
+            factory.setBlockingWorkLimiter(blockingWorkLimiter);
+        }
+
+        return factory;
+    }
+
+    /**
+     * Caps a {@code min-max} or fixed consumer count, as accepted by
+     * {@link org.springframework.jms.listener.DefaultMessageListenerContainer#setConcurrency(String)}, at
+     * {@code limit} consumers.
+     */
+    static String capConcurrency(String concurrency, int limit) {
+        int separator = concurrency.indexOf('-');
+        int min = Integer.parseInt(separator < 0 ? concurrency.trim() : concurrency.substring(0, separator).trim());
+        int max = separator < 0 ? min : Integer.parseInt(concurrency.substring(separator + 1).trim());
+        String capped = Math.min(min, limit) + "-" + Math.min(max, limit);
+
+        if (max > limit) {
+            log.warn("Listener concurrency {} is above the virtual mode limit of {}, using {}", concurrency, limit, capped);
+        }
+
+        return capped;
+    }
+
+    private static ActiveMQConnectionFactory artemisConnectionFactory(ConnectionFactory connectionFactory) {
+        // Sleuth wraps connection factory beans for tracing and keeps the wrapped one in this field
+        Field delegate = ReflectionUtils.findField(connectionFactory.getClass(), "delegate", ConnectionFactory.class);
+        if (delegate != null) {
+            ReflectionUtils.makeAccessible(delegate);
+            connectionFactory = (ConnectionFactory) ReflectionUtils.getField(delegate, connectionFactory);
+        }
+
+        if (connectionFactory instanceof CachingConnectionFactory) {
+            connectionFactory = ((CachingConnectionFactory) connectionFactory).getTargetConnectionFactory();
+        }
+
+        return connectionFactory instanceof ActiveMQConnectionFactory
+                ? (ActiveMQConnectionFactory) connectionFactory
+                : null;
+    }
+
+    // same broker and credentials as the shared factory, which is left untouched for publishing
+    private static ActiveMQConnectionFactory consumerConnectionFactory(ActiveMQConnectionFactory shared,
+                                                                       int consumerWindowSize) {
+        ActiveMQConnectionFactory consumerConnectionFactory =
+                new ActiveMQConnectionFactory(shared.isHA(), shared.getStaticConnectors());
+        consumerConnectionFactory.setUser(shared.getUser());
+        consumerConnectionFactory.setPassword(shared.getPassword());
+        consumerConnectionFactory.setConsumerWindowSize(consumerWindowSize);
+        return consumerConnectionFactory;
     }
 }
@@ -0,0 +1,19 @@
+package guru.sfg.beer.order.service.config;
+
+import guru.sfg.beer.order.service.domain.OrderUuidType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * JPA Configuration - passes the UUID key storage mode through to Hibernate
+ */
+@Configuration
+public class JpaConfig {
+
+    @Bean
+    HibernatePropertiesCustomizer uuidStorageCustomizer(@Value("${" + OrderUuidType.STORAGE_SETTING + ":char}") String uuidStorage) {
+        return hibernateProperties -> hibernateProperties.put(OrderUuidType.STORAGE_SETTING, uuidStorage);
+    }
+}
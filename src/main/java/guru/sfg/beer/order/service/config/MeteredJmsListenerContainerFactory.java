@@ -0,0 +1,139 @@
+package guru.sfg.beer.order.service.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listener container factory whose containers publish per destination consumption meters: a
+ * {@code beer.order.jms.listener.messages} timer tagged with the outcome, and gauges for the consumers
+ * currently scheduled and receiving.
+ *
+ * Containers scale between the minimum and maximum concurrency with the backlog: a consumer is added
+ * while every consumer keeps receiving messages, and one that finds no message for
+ * {@code idleTaskExecutionLimit} receive timeouts is released, keeping at most {@code idleConsumerLimit}
+ * idle consumers above the minimum.
+ *
+ * A factory given its own Artemis connection factory, for a consumer window sized to its destination,
+ * closes it when the context shuts down. One given a {@link BlockingWorkLimiter} has its containers hold
+ * a permit while the listener processes each message.
+ */
+public class MeteredJmsListenerContainerFactory extends DefaultJmsListenerContainerFactory implements DisposableBean {
+
+    private final MeterRegistry meterRegistry;
+    private final int idleConsumerLimit;
+    private final int idleTaskExecutionLimit;
+    private ActiveMQConnectionFactory dedicatedConnectionFactory;
+    private BlockingWorkLimiter blockingWorkLimiter;
+
+    public MeteredJmsListenerContainerFactory(MeterRegistry meterRegistry, int idleConsumerLimit,
+                                              int idleTaskExecutionLimit) {
+        this.meterRegistry = meterRegistry;
+        this.idleConsumerLimit = idleConsumerLimit;
+        this.idleTaskExecutionLimit = idleTaskExecutionLimit;
+    }
+
+    /**
+     * Connects this factory's containers through a connection factory owned by the factory.
+     */
+    public void setDedicatedConnectionFactory(ActiveMQConnectionFactory connectionFactory) {
+        this.dedicatedConnectionFactory = connectionFactory;
+        setConnectionFactory(connectionFactory);
+    }
+
+    public void setBlockingWorkLimiter(BlockingWorkLimiter blockingWorkLimiter) {
+        this.blockingWorkLimiter = blockingWorkLimiter;
+    }
+
+    @Override
+    public void destroy() {
+        if (dedicatedConnectionFactory != null) {
+            dedicatedConnectionFactory.close();
+        }
+    }
+
+    @Override
+    protected DefaultMessageListenerContainer createContainerInstance() {
+        DefaultMessageListenerContainer container = new MeteredMessageListenerContainer(meterRegistry, blockingWorkLimiter);
+        container.setIdleConsumerLimit(idleConsumerLimit);
+        container.setIdleTaskExecutionLimit(idleTaskExecutionLimit);
+        return container;
+    }
+
+    static class MeteredMessageListenerContainer extends DefaultMessageListenerContainer {
+
+        private final MeterRegistry meterRegistry;
+        private final BlockingWorkLimiter blockingWorkLimiter;
+        private Timer successTimer;
+        private Timer failureTimer;
+
+        MeteredMessageListenerContainer(MeterRegistry meterRegistry, BlockingWorkLimiter blockingWorkLimiter) {
+            this.meterRegistry = meterRegistry;
+            this.blockingWorkLimiter = blockingWorkLimiter;
+        }
+
+        @Override
+        public void initialize() {
+            // the destination is only known once the endpoint has configured the container
+            String queue = getDestinationName();
+
+            successTimer = messageTimer(queue, "success");
+            failureTimer = messageTimer(queue, "failure");
+
+            Gauge.builder("beer.order.jms.listener.consumers", this, DefaultMessageListenerContainer::getScheduledConsumerCount)
+                    .description("Consumers scheduled for the destination")
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+            Gauge.builder("beer.order.jms.listener.consumers.active", this, DefaultMessageListenerContainer::getActiveConsumerCount)
+                    .description("Consumers currently receiving or processing a message")
+                    .tag("queue", queue)
+                    .register(meterRegistry);
+
+            super.initialize();
+        }
+
+        @Override
+        protected void invokeListener(Session session, Message message) throws JMSException {
+            if (blockingWorkLimiter == null) {
+                invokeTimed(session, message);
+                return;
+            }
+
+            blockingWorkLimiter.acquire();
+            try {
+                invokeTimed(session, message);
+            } finally {
+                blockingWorkLimiter.release();
+            }
+        }
+
+        private void invokeTimed(Session session, Message message) throws JMSException {
+            long start = System.nanoTime();
+            boolean success = false;
+
+            try {
+                super.invokeListener(session, message);
+                success = true;
+            } finally {
+                (success ? successTimer : failureTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private Timer messageTimer(String queue, String outcome) {
+            return Timer.builder("beer.order.jms.listener.messages")
+                    .description("Time to process a message received from the destination")
+                    .tag("queue", queue)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+}
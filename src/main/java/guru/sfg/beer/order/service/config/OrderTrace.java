@@ -0,0 +1,44 @@
+package guru.sfg.beer.order.service.config;
+
+import org.slf4j.MDC;
+
+import java.util.UUID;
+
+/**
+ * Per order logging context. {@link #open(UUID)} puts the order id in the MDC of the current thread, where
+ * the JSON encoder adds it to every line and {@link OrderTraceFilter} uses it to pick the orders whose
+ * debug lines are logged while the service runs at INFO. Scopes nest, closing one restores the order id
+ * that was current when it was opened.
+ */
+public final class OrderTrace {
+
+    public static final String ORDER_ID_KEY = "orderId";
+
+    private OrderTrace() {
+    }
+
+    public static Scope open(UUID orderId) {
+        String previous = MDC.get(ORDER_ID_KEY);
+        MDC.put(ORDER_ID_KEY, orderId.toString());
+
+        return new Scope(previous);
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final String previous;
+
+        private Scope(String previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                MDC.remove(ORDER_ID_KEY);
+            } else {
+                MDC.put(ORDER_ID_KEY, previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package guru.sfg.beer.order.service.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Logback turbo filter for sampled order traces, configured in {@code logback-spring.xml} from
+ * {@code sfg.beer-order.logging.trace-sample-rate}. While an {@link OrderTrace} scope is open for a sampled
+ * order, DEBUG and higher lines of the service's own loggers are logged whatever their level, so a
+ * fraction of orders can be followed end to end without running the service at DEBUG.
+ *
+ * Orders are sampled on the hash of their id, so every thread, listener and retry handling the same order
+ * makes the same decision. Other loggers and lines outside an order scope are left to the logger levels.
+ */
+public class OrderTraceFilter extends TurboFilter {
+
+    private static final int SAMPLE_RANGE = 10_000;
+
+    private String loggerPrefix = "guru.sfg";
+    private int sampleThreshold;
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    /**
+     * Fraction of orders to trace, from 0 (none) to 1 (all).
+     */
+    public void setSampleRate(double sampleRate) {
+        this.sampleThreshold = (int) Math.round(Math.max(0, Math.min(1, sampleRate)) * SAMPLE_RANGE);
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (sampleThreshold == 0 || level.levelInt < Level.DEBUG_INT || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+
+        String orderId = MDC.get(OrderTrace.ORDER_ID_KEY);
+
+        return orderId != null && isSampled(orderId) ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+    }
+
+    /**
+     * Whether the lines logged for the order id are traced.
+     */
+    public boolean isSampled(String orderId) {
+        return Math.floorMod(orderId.hashCode(), SAMPLE_RANGE) < sampleThreshold;
+    }
+}
@@ -1,21 +1,194 @@
 package guru.sfg.beer.order.service.config;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Task Configuration - enable asyc tasks
+ *
+ * Async tasks run on a bounded pool of {@code core-size} to {@code max-size} threads with a queue of
+ * {@code queue-capacity} tasks. When both are full a task is either run on the submitting thread
+ * ({@code caller-runs}), which slows the producer down, or rejected with a
+ * {@link org.springframework.core.task.TaskRejectedException} ({@code shed}). Scheduled tasks run on
+ * their own fixed pool.
+ *
+ * Both pools publish {@code beer.order.executor.*} meters tagged with the pool name: active threads,
+ * pool size, queued and rejected tasks, and the time tasks spend queued and running.
+ *
+ * In the {@code virtual} execution mode async tasks each get a new virtual thread instead, and run
+ * holding a permit of the {@link BlockingWorkLimiter} shared with the JMS listener containers, so that
+ * together they run at most {@code sfg.beer-order.virtual.max-concurrency} pieces of blocking JDBC work
+ * at once and cannot outgrow the connection pool.
  */
 @EnableScheduling
 @EnableAsync
 @Configuration
-public class TaskConfig {
+public class TaskConfig implements SchedulingConfigurer {
+
+    public static final String EXECUTION_MODE_PROPERTY = "sfg.beer-order.execution-mode";
+    public static final String VIRTUAL_MODE = "virtual";
+    public static final String SHED_POLICY = "shed";
+
+    @Autowired
+    private ObjectProvider<ThreadPoolTaskScheduler> scheduledTaskScheduler;
+
+    @Bean
+    BlockingWorkLimiter blockingWorkLimiter(@Value("${sfg.beer-order.virtual.max-concurrency:5}") int maxConcurrency,
+                                            MeterRegistry meterRegistry) {
+        return new BlockingWorkLimiter(maxConcurrency, meterRegistry);
+    }
+
+    @Bean
+    TaskExecutor taskExecutor(@Value("${" + EXECUTION_MODE_PROPERTY + ":platform}") String executionMode,
+                              @Value("${sfg.beer-order.virtual.max-concurrency:5}") int maxConcurrency,
+                              BlockingWorkLimiter blockingWorkLimiter,
+                              @Value("${sfg.beer-order.async.core-size:4}") int corePoolSize,
+                              @Value("${sfg.beer-order.async.max-size:16}") int maxPoolSize,
+                              @Value("${sfg.beer-order.async.queue-capacity:100}") int queueCapacity,
+                              @Value("${sfg.beer-order.async.rejection-policy:caller-runs}") String rejectionPolicy,
+                              MeterRegistry meterRegistry) {
+        if (VIRTUAL_MODE.equals(executionMode)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(VirtualThreads.threadFactory("async-"));
+            // keeps the executor's own threads bounded where virtual threads fall back to platform threads
+            executor.setConcurrencyLimit(maxConcurrency);
+            executor.setTaskDecorator(blockingWorkLimiter::decorate);
+            return executor;
+        }
+
+        Timer waitTimer = executorTimer("beer.order.executor.wait", "Time a task waited in the queue", "async", meterRegistry);
+        Timer latencyTimer = executorTimer("beer.order.executor.latency", "Time to run a task", "async", meterRegistry);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("async-");
+        executor.setRejectedExecutionHandler(rejectionHandler(rejectionPolicy, "async", meterRegistry));
+        executor.setTaskDecorator(task -> {
+            long queued = System.nanoTime();
+
+            return () -> {
+                long start = System.nanoTime();
+                waitTimer.record(start - queued, TimeUnit.NANOSECONDS);
+
+                try {
+                    task.run();
+                } finally {
+                    latencyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            };
+        });
+
+        Gauge.builder("beer.order.executor.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Threads running a task")
+                .tag("name", "async")
+                .register(meterRegistry);
+        Gauge.builder("beer.order.executor.pool.size", executor, ThreadPoolTaskExecutor::getPoolSize)
+                .description("Threads in the pool")
+                .tag("name", "async")
+                .register(meterRegistry);
+        Gauge.builder("beer.order.executor.queued", executor, pool -> pool.getThreadPoolExecutor().getQueue().size())
+                .description("Tasks waiting for a thread")
+                .tag("name", "async")
+                .register(meterRegistry);
+
+        return executor;
+    }
+
+    /**
+     * Named so it does not replace the {@code taskScheduler} registered by Spring Statemachine, and wired
+     * into {@code @Scheduled} methods by {@link #configureTasks(ScheduledTaskRegistrar)}.
+     */
     @Bean
-    TaskExecutor taskExecutor() {
-        return new SimpleAsyncTaskExecutor();
+    ThreadPoolTaskScheduler scheduledTaskScheduler(@Value("${sfg.beer-order.scheduling.pool-size:2}") int poolSize,
+                                                   MeterRegistry meterRegistry) {
+        Timer latencyTimer = executorTimer("beer.order.executor.latency", "Time to run a task", "scheduling", meterRegistry);
+
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler() {
+            @Override
+            protected ScheduledExecutorService createExecutor(int poolSize, ThreadFactory threadFactory,
+                                                              RejectedExecutionHandler rejectedExecutionHandler) {
+                return new ScheduledThreadPoolExecutor(poolSize, threadFactory, rejectedExecutionHandler) {
+                    private final ThreadLocal<Long> start = new ThreadLocal<>();
+
+                    @Override
+                    protected void beforeExecute(Thread thread, Runnable task) {
+                        start.set(System.nanoTime());
+                    }
+
+                    @Override
+                    protected void afterExecute(Runnable task, Throwable failure) {
+                        latencyTimer.record(System.nanoTime() - start.get(), TimeUnit.NANOSECONDS);
+                    }
+                };
+            }
+        };
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        scheduler.setRejectedExecutionHandler(rejectionHandler(SHED_POLICY, "scheduling", meterRegistry));
+
+        Gauge.builder("beer.order.executor.active", scheduler, ThreadPoolTaskScheduler::getActiveCount)
+                .description("Threads running a task")
+                .tag("name", "scheduling")
+                .register(meterRegistry);
+        Gauge.builder("beer.order.executor.pool.size", scheduler, ThreadPoolTaskScheduler::getPoolSize)
+                .description("Threads in the pool")
+                .tag("name", "scheduling")
+                .register(meterRegistry);
+        Gauge.builder("beer.order.executor.queued", scheduler, pool -> pool.getScheduledThreadPoolExecutor().getQueue().size())
+                .description("Scheduled tasks waiting for their next run")
+                .tag("name", "scheduling")
+                .register(meterRegistry);
+
+        return scheduler;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.setScheduler(scheduledTaskScheduler.getObject());
+    }
+
+    private static Timer executorTimer(String name, String description, String executorName, MeterRegistry meterRegistry) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("name", executorName)
+                .register(meterRegistry);
+    }
+
+    private static RejectedExecutionHandler rejectionHandler(String policy, String executorName, MeterRegistry meterRegistry) {
+        Counter rejected = Counter.builder("beer.order.executor.rejected")
+                .description("Tasks that found the pool and queue full")
+                .tag("name", executorName)
+                .register(meterRegistry);
+        RejectedExecutionHandler delegate = SHED_POLICY.equals(policy)
+                ? new ThreadPoolExecutor.AbortPolicy()
+                : new ThreadPoolExecutor.CallerRunsPolicy();
+
+        return (task, executor) -> {
+            rejected.increment();
+            delegate.rejectedExecution(task, executor);
+        };
     }
 }
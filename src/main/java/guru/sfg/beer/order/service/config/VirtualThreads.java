@@ -0,0 +1,58 @@
+package guru.sfg.beer.order.service.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories for the {@code virtual} execution mode. Virtual threads need a Java 21 runtime while
+ * the service is still compiled for Java 11, so {@code Thread.ofVirtual()} is looked up reflectively.
+ * On older runtimes the mode falls back to a new platform thread per task, still throttled by the
+ * callers' concurrency limits.
+ */
+@Slf4j
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Returns a factory for threads named {@code prefix} followed by a sequence number, virtual if the
+     * runtime supports them.
+     */
+    public static ThreadFactory threadFactory(String prefix) {
+        if (isSupported()) {
+            try {
+                Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+                Object builder = OF_VIRTUAL.invoke(null);
+                builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+
+                return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Unable to create virtual thread factory, using platform threads for {}", prefix, e);
+            }
+        } else {
+            log.warn("Virtual threads need Java 21, using platform threads for {} on Java {}", prefix,
+                    Runtime.version().feature());
+        }
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> new Thread(runnable, prefix + threadNumber.incrementAndGet());
+    }
+
+    private static Method findMethod(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -49,10 +49,10 @@ public class BaseEntity {
     @GeneratedValue(generator = "UUID")
     @GenericGenerator(
             name = "UUID",
-            strategy = "org.hibernate.id.UUIDGenerator"
+            strategy = "guru.sfg.beer.order.service.domain.OrderIdGenerator"
     )
-    @Type(type="org.hibernate.type.UUIDCharType")
-    @Column(length = 36, columnDefinition = "varchar(36)", updatable = false, nullable = false )
+    @Type(type="guru.sfg.beer.order.service.domain.OrderUuidType")
+    @Column(length = 36, updatable = false, nullable = false )
     private UUID id;
 
     @Version
@@ -20,7 +20,9 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Type;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.ManyToOne;
 import java.sql.Timestamp;
@@ -50,6 +52,9 @@ public class BeerOrderLine extends BaseEntity {
     @ManyToOne
     private BeerOrder beerOrder;
     private String upc;
+
+    @Type(type="guru.sfg.beer.order.service.domain.OrderUuidType")
+    @Column(length = 36)
     private UUID beerId;
     private Integer orderQuantity = 0;
     private Integer quantityAllocated = 0;
@@ -0,0 +1,43 @@
+package guru.sfg.beer.order.service.domain;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates random UUID keys, or time ordered ones when keys are stored as binary (see
+ * {@link OrderUuidType}). Time ordered keys start with the creation time in milliseconds, followed by
+ * random bits, in the layout of a version 7 UUID, so new rows are appended at the end of the primary
+ * key index instead of splitting pages at random.
+ */
+public class OrderIdGenerator implements IdentifierGenerator, Configurable {
+
+    private boolean timeOrdered;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) {
+        timeOrdered = OrderUuidType.isBinaryStorage(serviceRegistry.getService(ConfigurationService.class).getSettings());
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return timeOrdered ? timeOrderedUuid(System.currentTimeMillis()) : UUID.randomUUID();
+    }
+
+    static UUID timeOrderedUuid(long epochMillis) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long mostSigBits = (epochMillis << 16) | 0x7000L | (random.nextLong() & 0x0FFFL);
+        long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
@@ -0,0 +1,42 @@
+package guru.sfg.beer.order.service.domain;
+
+import org.hibernate.type.AbstractSingleColumnStandardBasicType;
+import org.hibernate.type.descriptor.java.UUIDTypeDescriptor;
+import org.hibernate.type.descriptor.sql.BinaryTypeDescriptor;
+import org.hibernate.type.descriptor.sql.SqlTypeDescriptor;
+import org.hibernate.type.descriptor.sql.VarcharTypeDescriptor;
+import org.hibernate.type.spi.TypeBootstrapContext;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Storage of entity UUID keys, and so of the foreign keys referencing them. Stored as 36 character
+ * strings by default; with {@code sfg.beer-order.uuid-storage=binary} they are stored as 16 bytes, which
+ * keeps primary and secondary indexes much smaller on MySQL.
+ *
+ * The binary mode expects the schema to be converted by the binary-uuid Flyway migration, Hibernate's
+ * generated DDL still uses the 36 character column length.
+ */
+public class OrderUuidType extends AbstractSingleColumnStandardBasicType<UUID> {
+
+    public static final String STORAGE_SETTING = "sfg.beer-order.uuid-storage";
+    public static final String BINARY_STORAGE = "binary";
+
+    public OrderUuidType(TypeBootstrapContext typeBootstrapContext) {
+        super(sqlTypeDescriptor(typeBootstrapContext.getConfigurationSettings()), UUIDTypeDescriptor.INSTANCE);
+    }
+
+    public static boolean isBinaryStorage(Map<?, ?> settings) {
+        return BINARY_STORAGE.equals(settings.get(STORAGE_SETTING));
+    }
+
+    private static SqlTypeDescriptor sqlTypeDescriptor(Map<String, Object> settings) {
+        return isBinaryStorage(settings) ? BinaryTypeDescriptor.INSTANCE : VarcharTypeDescriptor.INSTANCE;
+    }
+
+    @Override
+    public String getName() {
+        return "order-uuid";
+    }
+}
@@ -0,0 +1,58 @@
+package guru.sfg.beer.order.service.domain;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Type;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import java.sql.Timestamp;
+import java.util.UUID;
+
+/**
+ * Outbound JMS message recorded in the same transaction as the order state change that produced it.
+ * The identity id gives the publish order.
+ */
+@Getter
+@Setter
+@Entity
+@NoArgsConstructor
+public class OutboxMessage {
+
+    @Builder
+    public OutboxMessage(UUID orderId, String destination, String payloadType, String payload) {
+        this.orderId = orderId;
+        this.destination = destination;
+        this.payloadType = payloadType;
+        this.payload = payload;
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Type(type="org.hibernate.type.UUIDCharType")
+    @Column(length = 36, columnDefinition = "varchar(36)", updatable = false, nullable = false)
+    private UUID orderId;
+
+    @Column(updatable = false, nullable = false)
+    private String destination;
+
+    @Column(updatable = false, nullable = false)
+    private String payloadType;
+
+    @Lob
+    @Column(updatable = false, nullable = false)
+    private String payload;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private Timestamp createdDate;
+}
@@ -21,20 +21,110 @@ import guru.sfg.beer.order.service.domain.BeerOrder;
 import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
 import guru.sfg.beer.order.service.domain.Customer;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.sql.Timestamp;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 
 /**
  * Created by jt on 2019-01-26.
  */
-public interface BeerOrderRepository  extends JpaRepository<BeerOrder, UUID> {
+public interface BeerOrderRepository  extends JpaRepository<BeerOrder, UUID>, BeerOrderStatusUpdate {
+
+    String EXPORT_FETCH_SIZE = "500";
 
     Page<BeerOrder> findAllByCustomer(Customer customer, Pageable pageable);
 
+    @Query(value = "select o.id from BeerOrder o where o.customer.id = :customerId",
+            countQuery = "select count(o) from BeerOrder o where o.customer.id = :customerId")
+    Page<UUID> findIdsByCustomerId(@Param("customerId") UUID customerId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"customer", "beerOrderLines"})
+    List<BeerOrder> findDistinctByIdIn(Collection<UUID> ids);
+
+    /**
+     * Two phase page load: a page of order ids (plus the count query), then one fetch join of those orders
+     * with their customer and lines. The statement count does not grow with the page size, and the
+     * collection fetch is never combined with a limit, so Hibernate does not paginate in memory.
+     */
+    default Page<BeerOrder> findPageWithLinesByCustomerId(UUID customerId, Pageable pageable) {
+        Page<UUID> idPage = findIdsByCustomerId(customerId, pageable);
+
+        if (idPage.isEmpty()) {
+            return idPage.map(id -> null);
+        }
+
+        Map<UUID, BeerOrder> ordersById = findDistinctByIdIn(idPage.getContent()).stream()
+                .collect(Collectors.toMap(BeerOrder::getId, Function.identity()));
+
+        return idPage.map(ordersById::get);
+    }
+
+    @Query("select o.id from BeerOrder o where o.customer.id = :customerId"
+            + " order by o.customer.id desc, o.createdDate desc, o.id desc")
+    List<UUID> findFirstIdsByCustomerId(@Param("customerId") UUID customerId, Pageable pageable);
+
+    @Query("select o.id from BeerOrder o where o.customer.id = :customerId"
+            + " and o.createdDate <= :createdDate and (o.createdDate < :createdDate or o.id < :id)"
+            + " order by o.customer.id desc, o.createdDate desc, o.id desc")
+    List<UUID> findIdsByCustomerIdAfter(@Param("customerId") UUID customerId, @Param("createdDate") Timestamp createdDate,
+                                        @Param("id") UUID id, Pageable pageable);
+
+    long countByCustomerId(UUID customerId);
+
+    /**
+     * Keyset page load, newest first: seeks past the cursor on the (customer, createdDate, id) index
+     * instead of skipping an offset, so every page costs the same however deep it is. The customer id
+     * leads the sort so H2 reads the rows in index order rather than sorting them. Returns up to
+     * {@code limit} orders following the given order key (or from the start when it is null) with their
+     * customer and lines, in listing order.
+     */
+    default List<BeerOrder> findSliceWithLinesByCustomerId(UUID customerId, Timestamp afterCreatedDate, UUID afterId,
+                                                           int limit) {
+        Pageable firstRows = PageRequest.of(0, limit);
+        List<UUID> ids = afterId == null
+                ? findFirstIdsByCustomerId(customerId, firstRows)
+                : findIdsByCustomerIdAfter(customerId, afterCreatedDate, afterId, firstRows);
+
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<UUID, BeerOrder> ordersById = findDistinctByIdIn(ids).stream()
+                .collect(Collectors.toMap(BeerOrder::getId, Function.identity()));
+
+        return ids.stream().map(ordersById::get).collect(Collectors.toList());
+    }
+
+    /**
+     * Forward only stream of every order of the customer with its lines, newest first. Rows are fetched
+     * from the driver in batches and the orders are loaded read only; callers should detach orders once
+     * written so the persistence context does not grow with the history.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select o from BeerOrder o left join fetch o.beerOrderLines where o.customer.id = :customerId"
+            + " order by o.customer.id desc, o.createdDate desc, o.id desc")
+    Stream<BeerOrder> streamWithLinesByCustomerId(@Param("customerId") UUID customerId);
+
     List<BeerOrder> findAllByOrderStatus(BeerOrderStatusEnum beerOrderStatusEnum);
 
     //@Lock(LockModeType.PESSIMISTIC_WRITE)
@@ -0,0 +1,22 @@
+package guru.sfg.beer.order.service.repositories;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+
+/**
+ * Status writes for order state transitions, as a single versioned UPDATE of the order row instead of a
+ * flush of the whole order aggregate.
+ */
+public interface BeerOrderStatusUpdate {
+
+    /**
+     * Sets the order's status, bumps its version and last modified date with
+     * {@code update beer_order set order_status = ?, version = version + 1, last_modified_date = ?
+     * where id = ? and version = ?}, using the version the order was read with, and brings the loaded
+     * order up to date without flushing it. Other pending changes to the order are left to the next flush.
+     *
+     * @throws org.springframework.orm.ObjectOptimisticLockingFailureException if the order was changed or
+     *         deleted since it was read
+     */
+    void updateOrderStatus(BeerOrder beerOrder, BeerOrderStatusEnum orderStatus);
+}
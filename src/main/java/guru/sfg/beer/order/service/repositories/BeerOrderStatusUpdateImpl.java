@@ -0,0 +1,71 @@
+package guru.sfg.beer.order.service.repositories;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.PersistenceContext;
+import java.sql.Timestamp;
+
+/**
+ * The UPDATE bypasses the persistence context, so afterwards the loaded order and its snapshot in the
+ * context are moved to the new status, version and last modified date together, as Hibernate does after
+ * its own updates. Dirty checking then finds nothing new for those columns, while other unflushed changes
+ * stay dirty against the old snapshot.
+ */
+class BeerOrderStatusUpdateImpl implements BeerOrderStatusUpdate {
+
+    private static final String UPDATE_STATUS = "update BeerOrder o"
+            + " set o.orderStatus = :orderStatus, o.version = o.version + 1, o.lastModifiedDate = :lastModifiedDate"
+            + " where o.id = :id and o.version = :version";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void updateOrderStatus(BeerOrder beerOrder, BeerOrderStatusEnum orderStatus) {
+        BeerOrder order = (BeerOrder) Hibernate.unproxy(beerOrder);
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityEntry entry = session.getPersistenceContext().getEntry(order);
+
+        Long version = entry != null ? (Long) entry.getVersion() : order.getVersion();
+        Timestamp lastModifiedDate = new Timestamp(System.currentTimeMillis());
+
+        // no auto flush, which would dirty check the whole persistence context and could move the version
+        int updated = entityManager.createQuery(UPDATE_STATUS)
+                .setFlushMode(FlushModeType.COMMIT)
+                .setParameter("orderStatus", orderStatus)
+                .setParameter("lastModifiedDate", lastModifiedDate)
+                .setParameter("id", order.getId())
+                .setParameter("version", version)
+                .executeUpdate();
+
+        if (updated == 0) {
+            throw new ObjectOptimisticLockingFailureException(BeerOrder.class, order.getId());
+        }
+
+        Long nextVersion = version + 1;
+        order.setOrderStatus(orderStatus);
+        order.setLastModifiedDate(lastModifiedDate);
+
+        if (entry == null) {
+            order.setVersion(nextVersion);
+            return;
+        }
+
+        EntityPersister persister = entry.getPersister();
+        Object[] loadedState = entry.getLoadedState().clone();
+        loadedState[persister.getEntityMetamodel().getPropertyIndex("orderStatus")] = orderStatus;
+        loadedState[persister.getEntityMetamodel().getPropertyIndex("lastModifiedDate")] = lastModifiedDate;
+        loadedState[persister.getVersionProperty()] = nextVersion;
+
+        // also sets the version on the order
+        entry.postUpdate(order, loadedState, nextVersion);
+    }
+}
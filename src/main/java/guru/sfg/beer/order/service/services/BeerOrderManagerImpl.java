@@ -1,39 +1,43 @@
 package guru.sfg.beer.order.service.services;
 
+import guru.sfg.beer.order.service.config.OrderTrace;
 import guru.sfg.beer.order.service.domain.BeerOrder;
 import guru.sfg.beer.order.service.domain.BeerOrderEventsEnum;
 import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
 import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
-import guru.sfg.beer.order.service.sm.OrderStateChangeInterceptor;
+import guru.sfg.beer.order.service.sm.OrderStateEngine;
+import guru.sfg.beer.order.service.sm.OrderStatusAwaiter;
 import guru.sfg.brewery.model.BeerOrderDto;
+import io.github.resilience4j.retry.annotation.Retry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
-import org.springframework.statemachine.StateMachine;
-import org.springframework.statemachine.config.StateMachineFactory;
-import org.springframework.statemachine.support.DefaultStateMachineContext;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
 //KNIGHT OF LOGIC Web Solutions
 //Solutions adapted by RB
 
+/**
+ * Event handling for existing orders is retried by {@link OrderTransitionRetry} when it loses a
+ * concurrent update race. The retry wraps the transaction, so each attempt rereads the order and the
+ * state engine re-evaluates the event against its current status.
+ */
 @Slf4j
 @RequiredArgsConstructor
 @Service
 public class BeerOrderManagerImpl implements BeerOrderManager {
 
-    private final StateMachineFactory<BeerOrderStatusEnum, BeerOrderEventsEnum> stateMachineFactory;
+    private final OrderStateEngine orderStateEngine;
     private final BeerOrderRepository beerOrderRepository;
     public static final String ORDER_ID_HEADER = "order_id";
-    private final OrderStateChangeInterceptor orderStateChangeInterceptor;
+    private final OrderStatusAwaiter orderStatusAwaiter;
 
+    @Retry(name = OrderTransitionRetry.ORDER_TRANSITION)
     @Transactional
     @Override
     public void cancelOrder(UUID id) {
@@ -44,10 +48,11 @@ public class BeerOrderManagerImpl implements BeerOrderManager {
 
             sendBeerOrderEvent(beerOrder, BeerOrderEventsEnum.CANCEL_ORDER);
 
-        }, () -> log.error("Order Manager(cancelOrder): Beer order not found with id: " + id));
+        }, () -> log.error("Order Manager(cancelOrder): Beer order not found with id: {}", id));
 
     }
 
+    @Retry(name = OrderTransitionRetry.ORDER_TRANSITION)
     @Transactional
     @Override
     public void beerOrderPickedUp(UUID id) {
@@ -58,7 +63,7 @@ public class BeerOrderManagerImpl implements BeerOrderManager {
 
             sendBeerOrderEvent(beerOrder, BeerOrderEventsEnum.ORDER_PICKED_UP);
 
-        }, () -> log.error("Order Manager(beerOrderPickedUp): Beer order not found with id: " + id));
+        }, () -> log.error("Order Manager(beerOrderPickedUp): Beer order not found with id: {}", id));
 
     }
 
@@ -75,46 +80,56 @@ public class BeerOrderManagerImpl implements BeerOrderManager {
         return savedBeerOrder;
     }
 
+    @Retry(name = OrderTransitionRetry.ORDER_TRANSITION)
     @Override
     @Transactional
     public void processValidation(UUID beerOrderId, boolean isValid){
 
-        log.debug("Order Manager(processValidation) Result for beerOrderId: " + beerOrderId + " Valid? " + isValid);
+        log.debug("Order Manager(processValidation) Result for beerOrderId: {} Valid? {}", beerOrderId, isValid);
 
         Optional<BeerOrder> beerOrderOptional = beerOrderRepository.findById(beerOrderId);
 
         beerOrderOptional.ifPresentOrElse(beerOrder -> {
             if(isValid){
-                sendBeerOrderEvent(beerOrder, BeerOrderEventsEnum.VALIDATION_PASSED);
+                if (orderStatusAwaiter.sendAndAwait(beerOrderId, BeerOrderStatusEnum.VALIDATED,
+                        () -> sendBeerOrderEvent(beerOrder, BeerOrderEventsEnum.VALIDATION_PASSED))) {
 
-                awaitForStatus(beerOrderId, BeerOrderStatusEnum.VALIDATED);
+                    BeerOrder validatedOrder = beerOrderRepository.findById(beerOrderId).get();
 
-                BeerOrder validatedOrder = beerOrderRepository.findById(beerOrderId).get();
-
-                sendBeerOrderEvent(validatedOrder, BeerOrderEventsEnum.ALLOCATE_ORDER);
+                    sendBeerOrderEvent(validatedOrder, BeerOrderEventsEnum.ALLOCATE_ORDER);
+                } else {
+                    log.debug("Order Manager(processValidation): Validation ignored for beerOrderId: {} Status: {}",
+                            beerOrderId, beerOrder.getOrderStatus());
+                }
 
             } else {
                 sendBeerOrderEvent(beerOrder, BeerOrderEventsEnum.VALIDATION_FAILED);
             }
-        }, () -> log.error("Order Manager(processValidation): Order Not Found. Id: " + beerOrderId));
+        }, () -> log.error("Order Manager(processValidation): Order Not Found. Id: {}", beerOrderId));
 
 
     }
 
+    @Retry(name = OrderTransitionRetry.ORDER_TRANSITION)
     @Transactional
     @Override
     public void allocateOrderPassed(BeerOrderDto beerOrderDto) {
         Optional<BeerOrder> beerOrderOptional = beerOrderRepository.findById(beerOrderDto.getId());
 
         beerOrderOptional.ifPresentOrElse(beerOrder -> {
-            sendBeerOrderEvent(beerOrder, BeerOrderEventsEnum.ALLOCATION_SUCCESS);
-            awaitForStatus(beerOrder.getId(), BeerOrderStatusEnum.ALLOCATED);
-            updateAllocation(beerOrderDto);
-        }, () -> log.error("Order Manager(allocateOrderPassed): Order Id Not Found. Id: " + beerOrderDto.getId()));
+            if (orderStatusAwaiter.sendAndAwait(beerOrder.getId(), BeerOrderStatusEnum.ALLOCATED,
+                    () -> sendBeerOrderEvent(beerOrder, BeerOrderEventsEnum.ALLOCATION_SUCCESS))) {
+                updateAllocation(beerOrderDto);
+            } else {
+                log.debug("Order Manager(allocateOrderPassed): Allocation ignored for beerOrderId: {} Status: {}",
+                        beerOrder.getId(), beerOrder.getOrderStatus());
+            }
+        }, () -> log.error("Order Manager(allocateOrderPassed): Order Id Not Found. Id: {}", beerOrderDto.getId()));
 
 
     }
 
+    @Retry(name = OrderTransitionRetry.ORDER_TRANSITION)
     @Transactional
     @Override
     public void allocateOrderFailed(BeerOrderDto beerOrderDto) {
@@ -122,11 +137,12 @@ public class BeerOrderManagerImpl implements BeerOrderManager {
 
         beerOrderOptional.ifPresentOrElse(beerOrder -> {
             sendBeerOrderEvent(beerOrder, BeerOrderEventsEnum.ALLOCATION_FAILED);
-        }, () -> log.error("Order Manager(allocateOrderFailed): Order Not Found. Id: " + beerOrderDto.getId()));
+        }, () -> log.error("Order Manager(allocateOrderFailed): Order Not Found. Id: {}", beerOrderDto.getId()));
 
 
     }
 
+    @Retry(name = OrderTransitionRetry.ORDER_TRANSITION)
     @Transactional
     @Override
     public void pendingInventory(BeerOrderDto beerOrderDto) {
@@ -134,11 +150,15 @@ public class BeerOrderManagerImpl implements BeerOrderManager {
 
         beerOrderOptional.ifPresentOrElse(beerOrder -> {
 
-            sendBeerOrderEvent(beerOrder, BeerOrderEventsEnum.ALLOCATION_NO_INVENTORY);
-            awaitForStatus(beerOrder.getId(), BeerOrderStatusEnum.PENDING_INVENTORY);
-            updateAllocation(beerOrderDto);
+            if (orderStatusAwaiter.sendAndAwait(beerOrder.getId(), BeerOrderStatusEnum.PENDING_INVENTORY,
+                    () -> sendBeerOrderEvent(beerOrder, BeerOrderEventsEnum.ALLOCATION_NO_INVENTORY))) {
+                updateAllocation(beerOrderDto);
+            } else {
+                log.debug("Order Manager(pendingInventory): Allocation ignored for beerOrderId: {} Status: {}",
+                        beerOrder.getId(), beerOrder.getOrderStatus());
+            }
 
-        }, () -> log.error("Order Manager(pendingInventory): Order Id Not Found. Id: " + beerOrderDto.getId()));
+        }, () -> log.error("Order Manager(pendingInventory): Order Id Not Found. Id: {}", beerOrderDto.getId()));
 
     }
 
@@ -159,74 +179,22 @@ public class BeerOrderManagerImpl implements BeerOrderManager {
             //JT had passed second method parameter BeerOrder to saveAndFlush???
             beerOrderRepository.saveAndFlush(allocatedOrder);
 
-        }, () -> log.error("Order Manager(updateAllocation): Order Not Found. Id: " + beerOrderDto.getId()));
+        }, () -> log.error("Order Manager(updateAllocation): Order Not Found. Id: {}", beerOrderDto.getId()));
 
 
 
     }
 
-    private void sendBeerOrderEvent(BeerOrder beerOrder, BeerOrderEventsEnum eventEnum){
-
-        StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> sm = build(beerOrder);
+    private boolean sendBeerOrderEvent(BeerOrder beerOrder, BeerOrderEventsEnum eventEnum){
 
-        Message msg = MessageBuilder.withPayload(eventEnum)
+        Message<BeerOrderEventsEnum> msg = MessageBuilder.withPayload(eventEnum)
                 .setHeader(ORDER_ID_HEADER, beerOrder.getId().toString())//change here
                 .build();
 
-        sm.sendEvent(msg);
-
-    }
-
-    private StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> build(BeerOrder beerOrder){
-
-        StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> sm = stateMachineFactory.getStateMachine(beerOrder.getId());
-
-        sm.stop();
-
-        sm.getStateMachineAccessor()
-                .doWithAllRegions(sma -> {
-                    sma.addStateMachineInterceptor(orderStateChangeInterceptor);
-                    sma.resetStateMachine(new DefaultStateMachineContext<>(beerOrder.getOrderStatus(),null,null,null));
-
-                });
-
-        sm.start();
-
-        return sm;
-
-    }
-
-    private void awaitForStatus(UUID beerOrderId, BeerOrderStatusEnum statusEnum) {
-
-        AtomicBoolean found = new AtomicBoolean(false);
-        AtomicInteger loopCount = new AtomicInteger(0);
-
-        while (!found.get()) {
-            if (loopCount.incrementAndGet() > 10) {
-                found.set(true);
-                log.debug("awaitForStatus: Loop Retries exceeded");
-            }
-
-            beerOrderRepository.findById(beerOrderId).ifPresentOrElse(beerOrder -> {
-                if (beerOrder.getOrderStatus().equals(statusEnum)) {
-                    found.set(true);
-                    log.debug("awaitForStatus: Order Found");
-                } else {
-                    log.debug("awaitForStatus: Order Status Not Equal. Expected: " + statusEnum.name() + " Found: " + beerOrder.getOrderStatus().name());
-                }
-            }, () -> {
-                log.debug("awaitForStatus: Order Id Not Found");
-            });
-
-            if (!found.get()) {
-                try {
-                    log.debug("awaitForStatus: Sleeping for retry");
-                    Thread.sleep(100);
-                } catch (Exception e) {
-                    // do nothing
-                }
-            }
+        try (OrderTrace.Scope ignored = OrderTrace.open(beerOrder.getId())) {
+            return orderStateEngine.sendEvent(beerOrder.getOrderStatus(), msg);
         }
+
     }
 
 }
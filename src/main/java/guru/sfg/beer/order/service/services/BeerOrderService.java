@@ -18,15 +18,22 @@
 package guru.sfg.beer.order.service.services;
 
 
+import guru.sfg.brewery.model.BeerOrderCursorPage;
 import guru.sfg.brewery.model.BeerOrderDto;
 import guru.sfg.brewery.model.BeerOrderPagedList;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.UUID;
 
 public interface BeerOrderService {
     BeerOrderPagedList listOrders(UUID customerId, Pageable pageable);
 
+    BeerOrderCursorPage listOrders(UUID customerId, String cursor, int pageSize, boolean includeTotal);
+
+    void exportOrders(UUID customerId, OutputStream outputStream) throws IOException;
+
     BeerOrderDto placeOrder(UUID customerId, BeerOrderDto beerOrderDto);
 
     BeerOrderDto getOrderById(UUID customerId, UUID orderId);
@@ -17,47 +17,59 @@
 
 package guru.sfg.beer.order.service.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import guru.sfg.beer.order.service.domain.BeerOrder;
 import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
 import guru.sfg.beer.order.service.domain.Customer;
 import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
 import guru.sfg.beer.order.service.repositories.CustomerRepository;
 import guru.sfg.beer.order.service.web.mappers.BeerOrderMapper;
+import guru.sfg.brewery.model.BeerOrderCursorPage;
 import guru.sfg.brewery.model.BeerOrderDto;
 import guru.sfg.brewery.model.BeerOrderPagedList;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class BeerOrderServiceImpl implements BeerOrderService {
 
+    private static final int EXPORT_CHUNK_SIZE = 100;
+
     private final BeerOrderRepository beerOrderRepository;
     private final CustomerRepository customerRepository;
     private final BeerOrderMapper beerOrderMapper;
     private final BeerOrderManager beerOrderManager;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${sfg.beer-order.cursor.max-page-size:100}")
+    private int maxCursorPageSize = 100;
 
     @Override
     public BeerOrderPagedList listOrders(UUID customerId, Pageable pageable) {
-        Optional<Customer> customerOptional = customerRepository.findById(customerId);
-
-        if (customerOptional.isPresent()) {
+        if (customerRepository.existsById(customerId)) {
             Page<BeerOrder> beerOrderPage =
-                    beerOrderRepository.findAllByCustomer(customerOptional.get(), pageable);
+                    beerOrderRepository.findPageWithLinesByCustomerId(customerId, pageable);
 
-            return new BeerOrderPagedList(beerOrderPage
-                    .stream()
-                    .map(beerOrderMapper::beerOrderToDto)
-                    .collect(Collectors.toList()), PageRequest.of(
+            return new BeerOrderPagedList(beerOrderMapper.beerOrdersToDtos(beerOrderPage.getContent()), PageRequest.of(
                     beerOrderPage.getPageable().getPageNumber(),
                     beerOrderPage.getPageable().getPageSize()),
                     beerOrderPage.getTotalElements());
@@ -66,6 +78,75 @@ public class BeerOrderServiceImpl implements BeerOrderService {
         }
     }
 
+    /**
+     * Pages larger than {@code sfg.beer-order.cursor.max-page-size} are cut down to it.
+     */
+    @Override
+    public BeerOrderCursorPage listOrders(UUID customerId, String cursor, int requestedPageSize, boolean includeTotal) {
+        if (requestedPageSize < 1) {
+            throw new IllegalArgumentException("Page size must be at least 1, was " + requestedPageSize);
+        }
+
+        if (customerRepository.existsById(customerId)) {
+            int pageSize = Math.min(requestedPageSize, maxCursorPageSize);
+            OrderCursor after = cursor == null || cursor.isEmpty() ? null : OrderCursor.decode(cursor);
+
+            // one extra row tells whether another page follows without counting
+            List<BeerOrder> beerOrders = beerOrderRepository.findSliceWithLinesByCustomerId(customerId,
+                    after == null ? null : after.getCreatedDate(), after == null ? null : after.getId(), pageSize + 1);
+
+            String nextCursor = null;
+            if (beerOrders.size() > pageSize) {
+                beerOrders = beerOrders.subList(0, pageSize);
+                nextCursor = OrderCursor.after(beerOrders.get(pageSize - 1)).encode();
+            }
+
+            return BeerOrderCursorPage.builder()
+                    .content(beerOrderMapper.beerOrdersToDtos(beerOrders))
+                    .nextCursor(nextCursor)
+                    .totalElements(includeTotal ? beerOrderRepository.countByCustomerId(customerId) : null)
+                    .build();
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Writes every order of the customer as one JSON document per line. Orders are streamed from the
+     * database and mapped in chunks, so beer lookups are batched per chunk, and each chunk is detached
+     * once written to keep memory flat however long the history is.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public void exportOrders(UUID customerId, OutputStream outputStream) throws IOException {
+        List<BeerOrder> chunk = new ArrayList<>(EXPORT_CHUNK_SIZE);
+
+        try (Stream<BeerOrder> beerOrders = beerOrderRepository.streamWithLinesByCustomerId(customerId)) {
+            Iterator<BeerOrder> iterator = beerOrders.iterator();
+
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+
+                if (chunk.size() == EXPORT_CHUNK_SIZE) {
+                    writeChunk(chunk, outputStream);
+                }
+            }
+        }
+
+        writeChunk(chunk, outputStream);
+    }
+
+    private void writeChunk(List<BeerOrder> chunk, OutputStream outputStream) throws IOException {
+        for (BeerOrderDto beerOrderDto : beerOrderMapper.beerOrdersToDtos(chunk)) {
+            outputStream.write(objectMapper.writeValueAsBytes(beerOrderDto));
+            outputStream.write('\n');
+        }
+        outputStream.flush();
+
+        chunk.forEach(entityManager::detach);
+        chunk.clear();
+    }
+
     //@Transactional
     @Override
     public BeerOrderDto placeOrder(UUID customerId, BeerOrderDto beerOrderDto) {
@@ -82,7 +163,7 @@ public class BeerOrderServiceImpl implements BeerOrderService {
             BeerOrder savedBeerOrder = beerOrderManager.newBeerOrder(beerOrder);
             //BeerOrder savedBeerOrder = beerOrderRepository.saveAndFlush(beerOrder);
 
-            log.debug("Order Service(placeOrder): Saved Beer Order: " + beerOrder.getId());
+            log.debug("Order Service(placeOrder): Saved Beer Order: {}", beerOrder.getId());
 
             return beerOrderMapper.beerOrderToDto(savedBeerOrder);
         }
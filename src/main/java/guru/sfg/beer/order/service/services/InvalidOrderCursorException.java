@@ -0,0 +1,12 @@
+package guru.sfg.beer.order.service.services;
+
+/**
+ * Thrown when an order listing cursor was not issued by {@link OrderCursor#encode()}, such as a
+ * truncated or edited token sent by a client.
+ */
+public class InvalidOrderCursorException extends IllegalArgumentException {
+
+    public InvalidOrderCursorException(String token, Throwable cause) {
+        super("Invalid order cursor: " + token, cause);
+    }
+}
@@ -0,0 +1,47 @@
+package guru.sfg.beer.order.service.services;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in a customer's order listing, ordered newest first by (createdDate, id). Clients only see
+ * the encoded token.
+ */
+@Getter
+@RequiredArgsConstructor
+public class OrderCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final Timestamp createdDate;
+    private final UUID id;
+
+    public static OrderCursor after(BeerOrder beerOrder) {
+        return new OrderCursor(beerOrder.getCreatedDate(), beerOrder.getId());
+    }
+
+    public static OrderCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+
+            return new OrderCursor(Timestamp.from(Instant.parse(decoded.substring(0, separator))),
+                    UUID.fromString(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidOrderCursorException(token, e);
+        }
+    }
+
+    public String encode() {
+        String raw = createdDate.toInstant() + SEPARATOR + id;
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,153 @@
+package guru.sfg.beer.order.service.services;
+
+import guru.sfg.beer.order.service.config.OrderTrace;
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.brewery.model.BeerOrderDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes events per order in front of {@link BeerOrderManagerImpl}, enabled with
+ * {@code sfg.beer-order.dispatch.enabled=true}. Each order id is hashed to one of {@code lanes} single
+ * threaded lanes, so events for the same order, whether from the JMS listeners or from REST, are applied
+ * one at a time in arrival order and never race on the order's version. Events for orders on other lanes
+ * run in parallel, and no lock is shared between lanes.
+ *
+ * The caller blocks until its event has been handled and gets any exception thrown, so listener
+ * acknowledgement and redelivery are unchanged. New orders have no id yet and are passed straight through.
+ *
+ * Queue depth per lane is published as {@code beer.order.dispatch.lane.depth}, time spent queued and
+ * handling as {@code beer.order.dispatch.wait} and {@code beer.order.dispatch.latency}.
+ */
+@Slf4j
+@Primary
+@Service
+@ConditionalOnProperty(name = OrderEventDispatcher.DISPATCH_ENABLED_PROPERTY, havingValue = "true")
+public class OrderEventDispatcher implements BeerOrderManager {
+
+    public static final String DISPATCH_ENABLED_PROPERTY = "sfg.beer-order.dispatch.enabled";
+
+    private final BeerOrderManagerImpl beerOrderManagerImpl;
+    private final ThreadPoolExecutor[] lanes;
+    private final Timer[] waitTimers;
+    private final Timer[] latencyTimers;
+
+    public OrderEventDispatcher(BeerOrderManagerImpl beerOrderManagerImpl, MeterRegistry meterRegistry,
+                                @Value("${sfg.beer-order.dispatch.lanes:0}") int laneCount) {
+        this.beerOrderManagerImpl = beerOrderManagerImpl;
+
+        int size = laneCount > 0 ? laneCount : Runtime.getRuntime().availableProcessors();
+        this.lanes = new ThreadPoolExecutor[size];
+        this.waitTimers = new Timer[size];
+        this.latencyTimers = new Timer[size];
+
+        for (int i = 0; i < size; i++) {
+            String laneName = "order-lane-" + i;
+
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    runnable -> new Thread(runnable, laneName));
+
+            Gauge.builder("beer.order.dispatch.lane.depth", lanes[i], lane -> lane.getQueue().size())
+                    .description("Order events queued on a dispatch lane")
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+            waitTimers[i] = Timer.builder("beer.order.dispatch.wait")
+                    .description("Time an order event waited on its dispatch lane")
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+            latencyTimers[i] = Timer.builder("beer.order.dispatch.latency")
+                    .description("Time to handle an order event on its dispatch lane")
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public BeerOrder newBeerOrder(BeerOrder beerOrder) {
+        return beerOrderManagerImpl.newBeerOrder(beerOrder);
+    }
+
+    @Override
+    public void processValidation(UUID orderId, boolean isValid) {
+        dispatch(orderId, () -> beerOrderManagerImpl.processValidation(orderId, isValid));
+    }
+
+    @Override
+    public void allocateOrderPassed(BeerOrderDto beerOrderDto) {
+        dispatch(beerOrderDto.getId(), () -> beerOrderManagerImpl.allocateOrderPassed(beerOrderDto));
+    }
+
+    @Override
+    public void allocateOrderFailed(BeerOrderDto beerOrderDto) {
+        dispatch(beerOrderDto.getId(), () -> beerOrderManagerImpl.allocateOrderFailed(beerOrderDto));
+    }
+
+    @Override
+    public void pendingInventory(BeerOrderDto beerOrderDto) {
+        dispatch(beerOrderDto.getId(), () -> beerOrderManagerImpl.pendingInventory(beerOrderDto));
+    }
+
+    @Override
+    public void cancelOrder(UUID id) {
+        dispatch(id, () -> beerOrderManagerImpl.cancelOrder(id));
+    }
+
+    @Override
+    public void beerOrderPickedUp(UUID id) {
+        dispatch(id, () -> beerOrderManagerImpl.beerOrderPickedUp(id));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    private void dispatch(UUID orderId, Runnable handler) {
+        int lane = Math.floorMod(orderId.hashCode(), lanes.length);
+        long queued = System.nanoTime();
+
+        Future<?> result = lanes[lane].submit(() -> {
+            long start = System.nanoTime();
+            waitTimers[lane].record(start - queued, TimeUnit.NANOSECONDS);
+
+            try (OrderTrace.Scope ignored = OrderTrace.open(orderId)) {
+                handler.run();
+            } finally {
+                latencyTimers[lane].record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        });
+
+        try {
+            result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for event on order " + orderId, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Failed handling event on order " + orderId, cause);
+        }
+    }
+}
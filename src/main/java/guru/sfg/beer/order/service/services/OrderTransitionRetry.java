@@ -0,0 +1,100 @@
+package guru.sfg.beer.order.service.services;
+
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * Registers the {@value #ORDER_TRANSITION} retry used by {@link BeerOrderManagerImpl} when two threads
+ * change the same order at once, e.g. a validation result racing a cancel, or a duplicate allocation
+ * response. The losing thread fails its version check on save, and the whole event handler is run again
+ * in a new transaction after an exponential, randomized backoff.
+ *
+ * Only handlers that own their transaction are retried. When called inside an outer transaction, such as
+ * a batch from the batch response consumer, the conflict is rethrown so the outer transaction can roll
+ * back as a whole.
+ */
+@Slf4j
+@Component
+public class OrderTransitionRetry {
+
+    public static final String ORDER_TRANSITION = "orderTransition";
+
+    private final Retry retry;
+
+    public OrderTransitionRetry(RetryRegistry retryRegistry, MeterRegistry meterRegistry,
+                                @Value("${sfg.beer-order.transition-retry.max-attempts:5}") int maxAttempts,
+                                @Value("${sfg.beer-order.transition-retry.initial-wait-ms:20}") long initialWaitMillis,
+                                @Value("${sfg.beer-order.transition-retry.multiplier:2}") double multiplier,
+                                @Value("${sfg.beer-order.transition-retry.jitter:0.5}") double jitter) {
+        Counter conflicts = Counter.builder("beer.order.transition.conflicts")
+                .description("Order event handlers that lost a concurrent update of the same order")
+                .register(meterRegistry);
+        Counter retries = Counter.builder("beer.order.transition.retries")
+                .description("Order event handlers run again after a concurrent update conflict")
+                .register(meterRegistry);
+        Counter exhausted = Counter.builder("beer.order.transition.retries.exhausted")
+                .description("Order event handlers that still conflicted after the last attempt")
+                .register(meterRegistry);
+
+        RetryConfig config = RetryConfig.custom()
+                .maxAttempts(maxAttempts)
+                .intervalFunction(IntervalFunction.ofExponentialRandomBackoff(
+                        Duration.ofMillis(initialWaitMillis), multiplier, jitter))
+                .retryOnException(new ConflictPredicate(conflicts))
+                .build();
+
+        this.retry = retryRegistry.retry(ORDER_TRANSITION, config);
+
+        retry.getEventPublisher()
+                .onRetry(event -> {
+                    retries.increment();
+                    log.debug("Retrying {} attempt {} after {}", event.getName(), event.getNumberOfRetryAttempts(),
+                            event.getLastThrowable().getMessage());
+                })
+                .onError(event -> {
+                    exhausted.increment();
+                    log.warn("Giving up {} after {} attempts", event.getName(), event.getNumberOfRetryAttempts(),
+                            event.getLastThrowable());
+                });
+    }
+
+    public Retry getRetry() {
+        return retry;
+    }
+
+    /**
+     * Retries optimistic locking failures and lock conflicts, but only once the failed attempt's own
+     * transaction has ended.
+     */
+    public static class ConflictPredicate implements Predicate<Throwable> {
+
+        private final Counter conflicts;
+
+        public ConflictPredicate(Counter conflicts) {
+            this.conflicts = conflicts;
+        }
+
+        @Override
+        public boolean test(Throwable throwable) {
+            if (!(throwable instanceof ConcurrencyFailureException)) {
+                return false;
+            }
+
+            conflicts.increment();
+
+            return !TransactionSynchronizationManager.isActualTransactionActive();
+        }
+    }
+}
@@ -2,8 +2,11 @@ package guru.sfg.beer.order.service.services.beer;
 
 import guru.sfg.brewery.model.BeerDto;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface BeerService {
 
@@ -11,4 +14,11 @@ public interface BeerService {
 
     Optional<BeerDto> getBeerByUpc(String upc);
 
+    CompletableFuture<Optional<BeerDto>> getBeerByUpcAsync(String upc);
+
+    /**
+     * Looks up all given UPCs at once. UPCs unknown to the beer service are left out of the result.
+     */
+    Map<String, BeerDto> getBeersByUpcs(Collection<String> upcs);
+
 }
@@ -1,35 +1,224 @@
 package guru.sfg.beer.order.service.services.beer;
 
+import guru.sfg.beer.order.service.config.BlockingWorkLimiter;
+import guru.sfg.beer.order.service.config.TaskConfig;
+import guru.sfg.beer.order.service.config.VirtualThreads;
 import guru.sfg.brewery.model.BeerDto;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+@Slf4j
 @ConfigurationProperties(prefix = "sfg.brewery", ignoreUnknownFields = false)
 @Service
 public class BeerServiceImpl implements BeerService {
     public final static String BEER_PATH_V1 = "/api/v1/beer/";
     public final static String BEER_UPC_PATH_V1 = "/api/v1/beerUpc/";
+    public final static String BEER_UPCS_PATH_V1 = "/api/v1/beerUpcs";
+    public final static String BEER_SERVICE = "beerService";
+    private final CloseableHttpClient httpClient;
     private final RestTemplate restTemplate;
+    private final ExecutorService fanOutExecutor;
+    private final Executor lookupExecutor;
+    private final BlockingWorkLimiter blockingWorkLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Semaphore lookupPermits;
 
     private String beerServiceHost;
+    private volatile boolean bulkLookupSupported = true;
 
-    public BeerServiceImpl(RestTemplateBuilder restTemplateBuilder) {
-        this.restTemplate = restTemplateBuilder.build();
+    public BeerServiceImpl(RestTemplateBuilder restTemplateBuilder,
+                           CircuitBreakerRegistry circuitBreakerRegistry,
+                           BulkheadRegistry bulkheadRegistry,
+                           @Value("${sfg.beer-order.beer-service.pool-size:20}") int poolSize,
+                           @Value("${sfg.beer-order.beer-service.connect-timeout-ms:1000}") int connectTimeoutMillis,
+                           @Value("${sfg.beer-order.beer-service.read-timeout-ms:2000}") int readTimeoutMillis,
+                           @Value("${sfg.beer-order.beer-service.fan-out-parallelism:4}") int fanOutParallelism,
+                           @Value("${" + TaskConfig.EXECUTION_MODE_PROPERTY + ":platform}") String executionMode,
+                           BlockingWorkLimiter blockingWorkLimiter) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(poolSize);
+        connectionManager.setDefaultMaxPerRoute(poolSize);
+
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeoutMillis)
+                        .setConnectionRequestTimeout(connectTimeoutMillis)
+                        .setSocketTimeout(readTimeoutMillis)
+                        .build())
+                .build();
+
+        this.restTemplate = restTemplateBuilder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+                .build();
+
+        if (TaskConfig.VIRTUAL_MODE.equals(executionMode)) {
+            // a virtual thread per lookup is cheap, lookupPermits caps how many of them call the beer service
+            // and the shared limiter how many run alongside the listeners and async tasks
+            this.fanOutExecutor = Executors.newCachedThreadPool(VirtualThreads.threadFactory("beer-lookup-"));
+            this.lookupExecutor = task -> fanOutExecutor.execute(blockingWorkLimiter.decorate(task));
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.fanOutExecutor = Executors.newFixedThreadPool(fanOutParallelism, runnable -> {
+                Thread thread = new Thread(runnable, "beer-lookup-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.lookupExecutor = fanOutExecutor;
+        }
+
+        this.blockingWorkLimiter = blockingWorkLimiter;
+
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(BEER_SERVICE);
+        this.bulkhead = bulkheadRegistry.bulkhead(BEER_SERVICE);
+        // the bulkhead rejects calls beyond its limit instead of queueing them, so lookups wait here
+        this.lookupPermits = new Semaphore(bulkhead.getBulkheadConfig().getMaxConcurrentCalls(), true);
     }
 
     @Override
     public Optional<BeerDto> getBeerById(UUID uuid){
-        return Optional.of(restTemplate.getForObject(beerServiceHost + BEER_PATH_V1 + uuid.toString(), BeerDto.class));
+        return callBeerService(() ->
+                Optional.of(restTemplate.getForObject(beerServiceHost + BEER_PATH_V1 + uuid.toString(), BeerDto.class)));
     }
 
     @Override
     public Optional<BeerDto> getBeerByUpc(String upc) {
-        return Optional.of(restTemplate.getForObject(beerServiceHost + BEER_UPC_PATH_V1 + upc, BeerDto.class));
+        return callBeerService(() -> {
+            try {
+                return Optional.ofNullable(restTemplate.getForObject(beerServiceHost + BEER_UPC_PATH_V1 + upc, BeerDto.class));
+            } catch (HttpClientErrorException.NotFound e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * Runs the UPC lookup on the fan-out pool, with at most as many lookups calling the beer service at
+     * once as the bulkhead admits. The rest wait for a permit rather than being rejected by the bulkhead.
+     */
+    @Override
+    public CompletableFuture<Optional<BeerDto>> getBeerByUpcAsync(String upc) {
+        return CompletableFuture.supplyAsync(() -> {
+            lookupPermits.acquireUninterruptibly();
+            try {
+                return getBeerByUpc(upc);
+            } finally {
+                lookupPermits.release();
+            }
+        }, lookupExecutor);
+    }
+
+    /**
+     * Issues a single bulk request for the UPCs. If the beer service does not offer the bulk endpoint,
+     * that is remembered and the UPCs are fetched one by one on the fan-out pool instead.
+     */
+    @Override
+    public Map<String, BeerDto> getBeersByUpcs(Collection<String> upcs) {
+        Set<String> distinctUpcs = new LinkedHashSet<>(upcs);
+
+        if (distinctUpcs.isEmpty()) {
+            return Map.of();
+        }
+
+        if (distinctUpcs.size() > 1 && bulkLookupSupported) {
+            Optional<BeerDto[]> beers = callBeerService(() -> {
+                try {
+                    return Optional.of(Optional.ofNullable(
+                            restTemplate.postForObject(beerServiceHost + BEER_UPCS_PATH_V1, distinctUpcs, BeerDto[].class))
+                            .orElse(new BeerDto[0]));
+                } catch (HttpClientErrorException e) {
+                    if (e.getStatusCode() != HttpStatus.NOT_FOUND && e.getStatusCode() != HttpStatus.METHOD_NOT_ALLOWED) {
+                        throw e;
+                    }
+                    return Optional.empty();
+                }
+            });
+
+            if (beers.isPresent()) {
+                return Arrays.stream(beers.get())
+                        .collect(Collectors.toMap(BeerDto::getUpc, beer -> beer, (first, second) -> first));
+            }
+
+            log.info("Beer service does not support bulk UPC lookups, falling back to one request per UPC");
+            bulkLookupSupported = false;
+        }
+
+        return fanOut(distinctUpcs);
+    }
+
+    private Map<String, BeerDto> fanOut(Set<String> upcs) {
+        Map<String, CompletableFuture<Optional<BeerDto>>> lookups = new HashMap<>();
+        upcs.forEach(upc -> lookups.put(upc, getBeerByUpcAsync(upc)));
+
+        Map<String, BeerDto> beers = new HashMap<>();
+
+        try {
+            blockingWorkLimiter.awaitOther(() -> {
+                lookups.forEach((upc, lookup) -> lookup.join().ifPresent(beer -> beers.put(upc, beer)));
+                return beers;
+            });
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+
+        return beers;
+    }
+
+    /**
+     * Runs a remote call through the bulkhead and circuit breaker. Rejected and failed calls are
+     * reported as {@link BeerServiceUnavailableException}.
+     */
+    private <T> T callBeerService(Supplier<T> call) {
+        try {
+            return Bulkhead.decorateSupplier(bulkhead, CircuitBreaker.decorateSupplier(circuitBreaker, call)).get();
+        } catch (CallNotPermittedException | BulkheadFullException | RestClientException e) {
+            throw new BeerServiceUnavailableException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        fanOutExecutor.shutdown();
+        httpClient.close();
     }
 
     public void setBeerServiceHost(String beerServiceHost) {
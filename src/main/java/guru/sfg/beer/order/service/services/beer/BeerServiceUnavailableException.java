@@ -0,0 +1,12 @@
+package guru.sfg.beer.order.service.services.beer;
+
+/**
+ * Thrown when a beer service call fails or is rejected by the circuit breaker or bulkhead. Callers
+ * that only enrich data can catch it and carry on without beer details.
+ */
+public class BeerServiceUnavailableException extends RuntimeException {
+
+    public BeerServiceUnavailableException(Throwable cause) {
+        super("Beer service unavailable: " + cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,141 @@
+package guru.sfg.beer.order.service.services.beer;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import guru.sfg.beer.order.service.config.BlockingWorkLimiter;
+import guru.sfg.brewery.model.BeerDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UPC keyed cache in front of {@link BeerServiceImpl}, so mapping order lines does not cost a remote
+ * call per line. The cache is bounded by size, found beers expire after {@code ttl-seconds} and unknown
+ * UPCs are cached as empty for the shorter {@code negative-ttl-seconds}. Concurrent misses for the same
+ * UPC share a single remote call; failed lookups are not cached.
+ *
+ * Bulk lookups only request the UPCs that are not already cached.
+ *
+ * Hit, miss and eviction counts are published as {@code cache.*} meters tagged {@code cache=beer.upc}.
+ */
+@Slf4j
+@Primary
+@Service
+public class CachingBeerService implements BeerService {
+
+    private final BeerServiceImpl beerServiceImpl;
+    private final AsyncCache<String, Optional<BeerDto>> beerByUpc;
+    private final BlockingWorkLimiter blockingWorkLimiter;
+
+    public CachingBeerService(BeerServiceImpl beerServiceImpl, BlockingWorkLimiter blockingWorkLimiter,
+                              MeterRegistry meterRegistry,
+                              @Value("${sfg.beer-order.beer-cache.max-size:1000}") long maxSize,
+                              @Value("${sfg.beer-order.beer-cache.ttl-seconds:300}") long ttlSeconds,
+                              @Value("${sfg.beer-order.beer-cache.negative-ttl-seconds:30}") long negativeTtlSeconds) {
+        this.beerServiceImpl = beerServiceImpl;
+        this.blockingWorkLimiter = blockingWorkLimiter;
+        this.beerByUpc = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new FoundOrMissingExpiry(TimeUnit.SECONDS.toNanos(ttlSeconds),
+                        TimeUnit.SECONDS.toNanos(negativeTtlSeconds)))
+                .recordStats()
+                // bulk loads run on the calling thread, single lookups already complete on the fan-out pool
+                .executor(Runnable::run)
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, beerByUpc.synchronous(), "beer.upc");
+    }
+
+    @Override
+    public Optional<BeerDto> getBeerById(UUID uuid) {
+        return beerServiceImpl.getBeerById(uuid);
+    }
+
+    @Override
+    public Optional<BeerDto> getBeerByUpc(String upc) {
+        return join(getBeerByUpcAsync(upc));
+    }
+
+    @Override
+    public CompletableFuture<Optional<BeerDto>> getBeerByUpcAsync(String upc) {
+        return beerByUpc.get(upc, (key, executor) -> {
+            log.debug("Beer cache - loading upc: {}", key);
+            return beerServiceImpl.getBeerByUpcAsync(key);
+        });
+    }
+
+    /**
+     * Returns cached beers and loads all the misses with one bulk request, caching misses that the
+     * beer service does not know as empty.
+     */
+    @Override
+    public Map<String, BeerDto> getBeersByUpcs(Collection<String> upcs) {
+        Map<String, Optional<BeerDto>> cached = join(beerByUpc.getAll(upcs, missing -> {
+            Map<String, BeerDto> loaded = beerServiceImpl.getBeersByUpcs(toCollection(missing));
+
+            Map<String, Optional<BeerDto>> entries = new HashMap<>();
+            missing.forEach(upc -> entries.put(upc, Optional.ofNullable(loaded.get(upc))));
+            return entries;
+        }));
+
+        Map<String, BeerDto> beers = new HashMap<>();
+        cached.forEach((upc, beer) -> beer.ifPresent(found -> beers.put(upc, found)));
+
+        return beers;
+    }
+
+    // lookups may be running on the fan-out executor, in virtual mode they need the caller's permit
+    private <T> T join(CompletableFuture<T> future) {
+        try {
+            return blockingWorkLimiter.awaitOther(future::join);
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private static Collection<String> toCollection(Iterable<? extends String> upcs) {
+        Collection<String> collection = new ArrayList<>();
+        upcs.forEach(collection::add);
+        return collection;
+    }
+
+    private static class FoundOrMissingExpiry implements Expiry<String, Optional<BeerDto>> {
+
+        private final long foundNanos;
+        private final long missingNanos;
+
+        FoundOrMissingExpiry(long foundNanos, long missingNanos) {
+            this.foundNanos = foundNanos;
+            this.missingNanos = missingNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String upc, Optional<BeerDto> beer, long currentTime) {
+            return beer.isPresent() ? foundNanos : missingNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String upc, Optional<BeerDto> beer, long currentTime, long currentDuration) {
+            return expireAfterCreate(upc, beer, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String upc, Optional<BeerDto> beer, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,32 +1,38 @@
 package guru.sfg.beer.order.service.services.listeners;
 
 import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.beer.order.service.config.OrderTrace;
 import guru.sfg.beer.order.service.services.BeerOrderManager;
 import guru.sfg.brewery.model.events.AllocateOrderResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
 @RequiredArgsConstructor
 @Component
+@ConditionalOnProperty(name = BatchResponseConsumer.BATCH_ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
 public class AllocateOrderListener {
 
     private final BeerOrderManager beerOrderManager;
 
-    @JmsListener(destination = JmsConfig.ALLOCATE_ORDER_RESPONSE_QUEUE)
+    @JmsListener(destination = JmsConfig.ALLOCATE_ORDER_RESPONSE_QUEUE,
+            containerFactory = JmsConfig.ALLOCATE_ORDER_RESPONSE_LISTENER_FACTORY)
     public void listen(AllocateOrderResponse response){
 
-        if (!response.getAllocationError() && !response.getPendingInventory()){
-            //Allocation success
-            beerOrderManager.allocateOrderPassed(response.getBeerOrderDto());
-        }
-        else if (!response.getAllocationError() && response.getPendingInventory()){
-            //Pending Inventory
-            beerOrderManager.pendingInventory(response.getBeerOrderDto());
-        }
-        else if (response.getAllocationError()){
-            //Allocation exception
-            beerOrderManager.allocateOrderFailed(response.getBeerOrderDto());
+        try (OrderTrace.Scope ignored = OrderTrace.open(response.getBeerOrderDto().getId())) {
+            if (!response.getAllocationError() && !response.getPendingInventory()){
+                //Allocation success
+                beerOrderManager.allocateOrderPassed(response.getBeerOrderDto());
+            }
+            else if (!response.getAllocationError() && response.getPendingInventory()){
+                //Pending Inventory
+                beerOrderManager.pendingInventory(response.getBeerOrderDto());
+            }
+            else if (response.getAllocationError()){
+                //Allocation exception
+                beerOrderManager.allocateOrderFailed(response.getBeerOrderDto());
+            }
         }
 
     }
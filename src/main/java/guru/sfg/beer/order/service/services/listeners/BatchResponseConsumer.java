@@ -0,0 +1,257 @@
+package guru.sfg.beer.order.service.services.listeners;
+
+import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
+import guru.sfg.brewery.model.events.AllocateOrderResponse;
+import guru.sfg.brewery.model.events.ValidateOrderResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Batched consumer mode for the validation and allocation response queues, enabled with
+ * {@code sfg.beer-order.jms.batch.enabled=true} in place of {@link ValidatedOrderListener} and
+ * {@link AllocateOrderListener}.
+ *
+ * Each queue is drained by its own thread into batches of up to {@code max-messages} messages, or
+ * whatever arrived within {@code max-wait-ms} of the first one. All orders referenced by a batch are
+ * loaded with a single query, every response is applied in one JPA transaction, and the JMS session
+ * is committed once afterwards.
+ *
+ * A failed batch is rolled back, and as many messages as it held are then taken one at a time, each
+ * applied in its own transaction and committed on its own. The good responses of the batch go through
+ * once each on redelivery, and only the message that fails on its own is redelivered again, until the
+ * broker moves it to its dead letter address.
+ *
+ * Responses are applied to {@link BeerOrderManagerImpl} directly rather than through the per order
+ * dispatch lanes, which would run them outside the batch transaction.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = BatchResponseConsumer.BATCH_ENABLED_PROPERTY, havingValue = "true")
+public class BatchResponseConsumer implements SmartLifecycle {
+
+    public static final String BATCH_ENABLED_PROPERTY = "sfg.beer-order.jms.batch.enabled";
+
+    private static final long RECEIVE_TIMEOUT_MILLIS = 1000;
+
+    private final ConnectionFactory connectionFactory;
+    private final MessageConverter messageConverter;
+    private final BeerOrderRepository beerOrderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ValidatedOrderListener validatedOrderListener;
+    private final AllocateOrderListener allocateOrderListener;
+    private final int maxMessages;
+    private final long maxWaitMillis;
+
+    private final List<Thread> consumerThreads = new ArrayList<>();
+    private volatile boolean running;
+    private Connection connection;
+
+    public BatchResponseConsumer(ConnectionFactory connectionFactory, MessageConverter messageConverter,
+                                 BeerOrderRepository beerOrderRepository, BeerOrderManagerImpl beerOrderManager,
+                                 PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                 @Value("${sfg.beer-order.jms.batch.max-messages:50}") int maxMessages,
+                                 @Value("${sfg.beer-order.jms.batch.max-wait-ms:100}") long maxWaitMillis) {
+        this.connectionFactory = connectionFactory;
+        this.messageConverter = messageConverter;
+        this.beerOrderRepository = beerOrderRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.validatedOrderListener = new ValidatedOrderListener(beerOrderManager);
+        this.allocateOrderListener = new AllocateOrderListener(beerOrderManager);
+        this.maxMessages = maxMessages;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public synchronized void start() {
+        try {
+            connection = connectionFactory.createConnection();
+            connection.start();
+        } catch (JMSException e) {
+            throw new IllegalStateException("Unable to open JMS connection for batch consumers", e);
+        }
+
+        running = true;
+        consumerThreads.add(startConsumer(JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE));
+        consumerThreads.add(startConsumer(JmsConfig.ALLOCATE_ORDER_RESPONSE_QUEUE));
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+
+        for (Thread thread : consumerThreads) {
+            try {
+                thread.join(RECEIVE_TIMEOUT_MILLIS * 2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        consumerThreads.clear();
+
+        try {
+            connection.close();
+        } catch (JMSException e) {
+            log.warn("Error closing batch consumer connection", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private Thread startConsumer(String destination) {
+        Thread thread = new Thread(() -> consume(destination), "batch-" + destination);
+        thread.start();
+        return thread;
+    }
+
+    private void consume(String destination) {
+        Timer batchTimer = Timer.builder("beer.order.jms.batch.latency")
+                .description("Time to apply and commit a batch of response messages")
+                .tag("queue", destination)
+                .register(meterRegistry);
+        DistributionSummary batchSize = DistributionSummary.builder("beer.order.jms.batch.size")
+                .tag("queue", destination)
+                .register(meterRegistry);
+        Counter processed = Counter.builder("beer.order.jms.batch.messages")
+                .description("Response messages applied by the batch consumer")
+                .tag("queue", destination)
+                .register(meterRegistry);
+        Counter failedBatches = Counter.builder("beer.order.jms.batch.failures")
+                .description("Batches rolled back and retried one message per transaction")
+                .tag("queue", destination)
+                .register(meterRegistry);
+
+        // messages still to be applied one per transaction after a failed batch
+        int isolated = 0;
+
+        try (Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+             MessageConsumer consumer = session.createConsumer(session.createQueue(destination))) {
+
+            while (running) {
+                List<Message> batch = drain(consumer, isolated > 0 ? 1 : maxMessages);
+
+                if (batch.isEmpty()) {
+                    continue;
+                }
+
+                long start = System.nanoTime();
+
+                try {
+                    applyBatch(batch);
+                    session.commit();
+                    processed.increment(batch.size());
+
+                    if (isolated > 0) {
+                        isolated--;
+                    }
+                } catch (Exception e) {
+                    session.rollback();
+
+                    if (batch.size() > 1) {
+                        log.warn("Batch of {} messages from {} failed, applying them one at a time", batch.size(),
+                                destination, e);
+                        failedBatches.increment();
+                        isolated = batch.size();
+                    } else {
+                        log.error("Message {} from {} failed, rolled back for redelivery",
+                                batch.get(0).getJMSMessageID(), destination, e);
+                    }
+                } finally {
+                    batchSize.record(batch.size());
+                    batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+        } catch (JMSException e) {
+            if (running) {
+                log.error("Batch consumer for {} stopped", destination, e);
+            }
+        }
+    }
+
+    private List<Message> drain(MessageConsumer consumer, int limit) throws JMSException {
+        List<Message> batch = new ArrayList<>(limit);
+
+        Message first = consumer.receive(RECEIVE_TIMEOUT_MILLIS);
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+
+        long deadline = System.currentTimeMillis() + maxWaitMillis;
+        while (batch.size() < limit) {
+            long remaining = deadline - System.currentTimeMillis();
+            Message next = remaining > 0 ? consumer.receive(remaining) : consumer.receiveNoWait();
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+
+        return batch;
+    }
+
+    private void applyBatch(List<Message> batch) throws JMSException {
+        List<Object> payloads = new ArrayList<>(batch.size());
+        for (Message message : batch) {
+            payloads.add(messageConverter.fromMessage(message));
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // loads every referenced order into the persistence context so the manager's lookups are cache hits
+            beerOrderRepository.findAllById(orderIds(payloads));
+
+            payloads.forEach(payload -> {
+                if (payload instanceof ValidateOrderResult) {
+                    validatedOrderListener.listen((ValidateOrderResult) payload);
+                } else if (payload instanceof AllocateOrderResponse) {
+                    allocateOrderListener.listen((AllocateOrderResponse) payload);
+                } else {
+                    log.error("Batch consumer - unexpected payload type: {}", payload.getClass().getName());
+                }
+            });
+        });
+    }
+
+    private Set<UUID> orderIds(List<Object> payloads) {
+        return payloads.stream()
+                .map(payload -> {
+                    if (payload instanceof ValidateOrderResult) {
+                        return ((ValidateOrderResult) payload).getOrderId();
+                    } else if (payload instanceof AllocateOrderResponse) {
+                        return ((AllocateOrderResponse) payload).getBeerOrderDto().getId();
+                    }
+                    return null;
+                })
+                .filter(id -> id != null)
+                .collect(Collectors.toSet());
+    }
+}
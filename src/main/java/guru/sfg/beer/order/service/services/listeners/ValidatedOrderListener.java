@@ -1,10 +1,12 @@
 package guru.sfg.beer.order.service.services.listeners;
 
 import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.beer.order.service.config.OrderTrace;
 import guru.sfg.beer.order.service.services.BeerOrderManager;
 import guru.sfg.brewery.model.events.ValidateOrderResult;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
@@ -13,18 +15,22 @@ import java.util.UUID;
 @Slf4j
 @RequiredArgsConstructor
 @Component
+@ConditionalOnProperty(name = BatchResponseConsumer.BATCH_ENABLED_PROPERTY, havingValue = "false", matchIfMissing = true)
 public class ValidatedOrderListener {
 
     private final BeerOrderManager beerOrderManager;
 
-    @JmsListener(destination = JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE)
+    @JmsListener(destination = JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE,
+            containerFactory = JmsConfig.VALIDATE_ORDER_RESPONSE_LISTENER_FACTORY)
     public void listen(ValidateOrderResult validateOrderResult){
         final UUID beerOrderId = validateOrderResult.getOrderId();
         final boolean isValid = validateOrderResult.getIsValid();
 
-        log.debug("ValidatedOrderListener -- Validation Result for Order Id: " + beerOrderId);
+        try (OrderTrace.Scope ignored = OrderTrace.open(beerOrderId)) {
+            log.debug("ValidatedOrderListener -- Validation Result for Order Id: {}", beerOrderId);
 
-        beerOrderManager.processValidation(beerOrderId, isValid);
+            beerOrderManager.processValidation(beerOrderId, isValid);
+        }
 
     }
 }
@@ -0,0 +1,226 @@
+package guru.sfg.beer.order.service.services.outbox;
+
+import guru.sfg.beer.order.service.config.EventPayloadConverter;
+import guru.sfg.beer.order.service.domain.OutboxMessage;
+import guru.sfg.beer.order.service.repositories.OutboxMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.stereotype.Component;
+
+import javax.jms.ConnectionFactory;
+import javax.jms.MessageProducer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes outbox rows to the broker in batches. Each poll reads up to {@code batch-size} rows in id
+ * order and splits them into {@code concurrency} lanes by order id, so every message for an order is
+ * sent by the same lane in the order it was written. A lane sends its messages in one transacted JMS
+ * session and its rows are deleted once the session has committed; a failed lane is left in the table
+ * and retried on the next poll.
+ *
+ * Rows hold JSON and go out as JSON text messages, or transcoded to Smile when that payload format is
+ * selected.
+ *
+ * Delivery is at least once: a crash between the JMS commit and the delete republishes the lane.
+ * Per-order ordering assumes a single relay instance per database.
+ */
+@Slf4j
+@Component
+public class OutboxRelay implements SmartLifecycle {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final JmsTemplate transactedJmsTemplate;
+    private final EventPayloadConverter payloadConverter;
+    private final int batchSize;
+    private final int concurrency;
+    private final long pollIntervalMillis;
+
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final AtomicLong backlog = new AtomicLong();
+    private final AtomicLong oldestCreatedMillis = new AtomicLong();
+    private final Counter published;
+    private final Timer batchTimer;
+
+    private volatile boolean running;
+    private ExecutorService lanes;
+    private Thread relayThread;
+
+    public OutboxRelay(OutboxMessageRepository outboxMessageRepository, ConnectionFactory connectionFactory,
+                       EventPayloadConverter payloadConverter, MeterRegistry meterRegistry,
+                       @Value("${sfg.beer-order.outbox.batch-size:100}") int batchSize,
+                       @Value("${sfg.beer-order.outbox.concurrency:4}") int concurrency,
+                       @Value("${sfg.beer-order.outbox.poll-interval-ms:500}") long pollIntervalMillis) {
+        this.outboxMessageRepository = outboxMessageRepository;
+        this.transactedJmsTemplate = new JmsTemplate(connectionFactory);
+        this.transactedJmsTemplate.setSessionTransacted(true);
+        this.payloadConverter = payloadConverter;
+        this.batchSize = batchSize;
+        this.concurrency = concurrency;
+        this.pollIntervalMillis = pollIntervalMillis;
+
+        Gauge.builder("beer.order.outbox.backlog", backlog, AtomicLong::get)
+                .description("Outbox messages waiting to be published")
+                .register(meterRegistry);
+        Gauge.builder("beer.order.outbox.lag", oldestCreatedMillis, this::lagSeconds)
+                .description("Age in seconds of the oldest unpublished outbox message")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.published = Counter.builder("beer.order.outbox.published")
+                .description("Outbox messages published to the broker")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("beer.order.outbox.relay.batch")
+                .description("Time to publish and delete one outbox batch")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Triggers a poll without waiting for the poll interval, called after a transaction that wrote
+     * outbox rows has committed.
+     */
+    public void wakeUp() {
+        wakeUp.release();
+    }
+
+    @Override
+    public synchronized void start() {
+        AtomicInteger laneNumber = new AtomicInteger();
+        lanes = Executors.newFixedThreadPool(concurrency,
+                runnable -> new Thread(runnable, "outbox-lane-" + laneNumber.incrementAndGet()));
+
+        running = true;
+        relayThread = new Thread(this::relayLoop, "outbox-relay");
+        relayThread.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        wakeUp();
+
+        try {
+            relayThread.join(pollIntervalMillis * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        lanes.shutdown();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void relayLoop() {
+        while (running) {
+            try {
+                wakeUp.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS);
+                wakeUp.drainPermits();
+
+                int relayed;
+                do {
+                    relayed = relayBatch();
+                } while (running && relayed == batchSize);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Outbox relay - poll failed", e);
+            }
+        }
+    }
+
+    /**
+     * Publishes one batch and returns the number of rows published, which is less than a full batch
+     * when the table has been drained or a lane failed.
+     */
+    int relayBatch() throws InterruptedException {
+        List<OutboxMessage> batch = outboxMessageRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+
+        backlog.set(batch.size() < batchSize ? batch.size() : outboxMessageRepository.count());
+        oldestCreatedMillis.set(batch.isEmpty() ? 0 : batch.get(0).getCreatedDate().getTime());
+
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        long start = System.nanoTime();
+
+        Map<Integer, List<OutboxMessage>> batchLanes = new LinkedHashMap<>();
+        batch.forEach(message -> batchLanes
+                .computeIfAbsent(Math.floorMod(message.getOrderId().hashCode(), concurrency), lane -> new ArrayList<>())
+                .add(message));
+
+        List<Future<List<OutboxMessage>>> results = new ArrayList<>(batchLanes.size());
+        batchLanes.values().forEach(laneMessages -> results.add(lanes.submit(() -> publish(laneMessages))));
+
+        List<OutboxMessage> sent = new ArrayList<>(batch.size());
+        for (Future<List<OutboxMessage>> result : results) {
+            try {
+                sent.addAll(result.get());
+            } catch (ExecutionException e) {
+                log.error("Outbox relay - lane failed, messages will be retried", e.getCause());
+            }
+        }
+
+        if (!sent.isEmpty()) {
+            outboxMessageRepository.deleteInBatch(sent);
+            published.increment(sent.size());
+            backlog.addAndGet(-sent.size());
+        }
+
+        batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        return sent.size();
+    }
+
+    private List<OutboxMessage> publish(List<OutboxMessage> laneMessages) {
+        return transactedJmsTemplate.execute(session -> {
+            MessageProducer producer = session.createProducer(null);
+
+            try {
+                for (OutboxMessage message : laneMessages) {
+                    producer.send(session.createQueue(message.getDestination()),
+                            payloadConverter.toMessage(message.getPayload(), message.getPayloadType(), session));
+                }
+
+                session.commit();
+            } catch (Exception e) {
+                JmsUtils.rollbackIfNecessary(session);
+                throw e;
+            } finally {
+                JmsUtils.closeMessageProducer(producer);
+            }
+
+            log.debug("Outbox relay - published {} messages", laneMessages.size());
+
+            return Collections.unmodifiableList(laneMessages);
+        }, true);
+    }
+
+    private double lagSeconds(AtomicLong oldestCreated) {
+        long created = oldestCreated.get();
+
+        return created == 0 ? 0 : (System.currentTimeMillis() - created) / 1000.0;
+    }
+}
@@ -0,0 +1,56 @@
+package guru.sfg.beer.order.service.services.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.sfg.beer.order.service.domain.OutboxMessage;
+import guru.sfg.beer.order.service.repositories.OutboxMessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+/**
+ * Records outbound JMS messages in the outbox table as part of the caller's transaction. Nothing
+ * reaches the broker until the transaction commits and {@link OutboxRelay} publishes the rows.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class OutboxService {
+
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final ObjectMapper objectMapper;
+    private final OutboxRelay outboxRelay;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String destination, UUID orderId, Object payload) {
+        String json;
+
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable to serialize outbox payload for order " + orderId, e);
+        }
+
+        outboxMessageRepository.save(OutboxMessage.builder()
+                .orderId(orderId)
+                .destination(destination)
+                .payloadType(payload.getClass().getName())
+                .payload(json)
+                .build());
+
+        log.debug("Outbox - queued {} to {} for order: {}", payload.getClass().getSimpleName(), destination, orderId);
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                outboxRelay.wakeUp();
+            }
+        });
+    }
+}
@@ -0,0 +1,106 @@
+package guru.sfg.beer.order.service.sm;
+
+import guru.sfg.beer.order.service.domain.BeerOrderEventsEnum;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.config.StateMachineFactory;
+import org.springframework.statemachine.support.DefaultStateMachineContext;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pool of pre-built beer order state machines. Machines are created once with the
+ * {@link OrderStateChangeInterceptor} registered, then reset in place to the order's current status
+ * for every event instead of being rebuilt by the {@link StateMachineFactory}.
+ *
+ * Events are processed synchronously on the calling thread, so a machine is returned to the pool as
+ * soon as {@link StateMachine#sendEvent(Message)} returns. A failure saving the new status, which the
+ * state machine itself only logs, is rethrown to the caller as with the enum table engine.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = OrderStateEngine.ENGINE_PROPERTY, havingValue = "spring", matchIfMissing = true)
+public class BeerOrderStateMachinePool implements OrderStateEngine {
+
+    private final StateMachineFactory<BeerOrderStatusEnum, BeerOrderEventsEnum> stateMachineFactory;
+    private final OrderStateChangeInterceptor orderStateChangeInterceptor;
+    private final BlockingQueue<StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum>> idleMachines;
+
+    public BeerOrderStateMachinePool(StateMachineFactory<BeerOrderStatusEnum, BeerOrderEventsEnum> stateMachineFactory,
+                                     OrderStateChangeInterceptor orderStateChangeInterceptor,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${sfg.beer-order.state-machine-pool-size:16}") int poolSize) {
+        this.stateMachineFactory = stateMachineFactory;
+        this.orderStateChangeInterceptor = orderStateChangeInterceptor;
+        this.idleMachines = new ArrayBlockingQueue<>(poolSize);
+
+        Gauge.builder("beer.order.statemachine.pool.idle", idleMachines, BlockingQueue::size)
+                .description("State machines available for reuse")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sends the event through a pooled machine reset to the given status.
+     */
+    @Override
+    public boolean sendEvent(BeerOrderStatusEnum currentStatus, Message<BeerOrderEventsEnum> message) {
+        StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> sm = acquire(currentStatus);
+
+        try {
+            boolean accepted = sm.sendEvent(message);
+
+            RuntimeException saveFailure = (RuntimeException) sm.getExtendedState().getVariables()
+                    .remove(OrderStateChangeInterceptor.STATE_SAVE_FAILURE);
+            if (saveFailure != null) {
+                throw saveFailure;
+            }
+
+            return accepted;
+        } finally {
+            release(sm);
+        }
+    }
+
+    private StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> acquire(BeerOrderStatusEnum currentStatus) {
+        StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> sm = idleMachines.poll();
+
+        if (sm == null) {
+            sm = create();
+        }
+
+        sm.stop();
+
+        sm.getStateMachineAccessor()
+                .doWithAllRegions(sma -> sma.resetStateMachine(new DefaultStateMachineContext<>(currentStatus, null, null, null)));
+
+        sm.start();
+
+        return sm;
+    }
+
+    private void release(StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> sm) {
+        if (sm.hasStateMachineError() || !idleMachines.offer(sm)) {
+            sm.stop();
+        }
+    }
+
+    private StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> create() {
+        log.debug("State machine pool - building new state machine");
+
+        StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> sm = stateMachineFactory.getStateMachine(UUID.randomUUID());
+
+        sm.getStateMachineAccessor()
+                .doWithAllRegions(sma -> sma.addStateMachineInterceptor(orderStateChangeInterceptor));
+
+        return sm;
+    }
+}
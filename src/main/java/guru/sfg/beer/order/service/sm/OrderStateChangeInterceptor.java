@@ -1,42 +1,207 @@
 package guru.sfg.beer.order.service.sm;
 
+import guru.sfg.beer.order.service.config.JmsConfig;
 import guru.sfg.beer.order.service.domain.BeerOrder;
 import guru.sfg.beer.order.service.domain.BeerOrderEventsEnum;
 import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
 import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
 import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.Message;
 import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.config.StateMachineFactory;
 import org.springframework.statemachine.state.State;
 import org.springframework.statemachine.support.StateMachineInterceptorAdapter;
 import org.springframework.statemachine.transition.Transition;
 import org.springframework.stereotype.Component;
 
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Saves each new order status and signals the {@link OrderStatusAwaiter}, recording the order lifecycle as
+ * it goes: a count of every event sent, the time from an event to its transition being saved per source,
+ * target and event, how long the order spent in the status it leaves (from its last modified date), and
+ * for validation and allocation responses the round trip from the request being queued to the response
+ * being applied, which includes the outbox relay and the other service.
+ *
+ * The transition timers are registered up front for the transitions configured in
+ * {@link BeerOrderStateMachineConfig}, so recording one is a map lookup.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class OrderStateChangeInterceptor extends
                     StateMachineInterceptorAdapter<BeerOrderStatusEnum, BeerOrderEventsEnum> {
 
+    static final String STATE_SAVE_FAILURE = "stateSaveFailure";
+
+    private static final Duration MAX_EXPECTED_STATE_DURATION = Duration.ofMinutes(5);
+
     private final BeerOrderRepository beerOrderRepository;
+    private final OrderStatusAwaiter orderStatusAwaiter;
+    private final MeterRegistry meterRegistry;
+    private final Map<BeerOrderEventsEnum, Counter> eventCounters = new EnumMap<>(BeerOrderEventsEnum.class);
+    private final Map<BeerOrderStatusEnum, Timer> stateTimers = new EnumMap<>(BeerOrderStatusEnum.class);
+    private final Map<BeerOrderStatusEnum, Map<BeerOrderEventsEnum, Map<BeerOrderStatusEnum, Timer>>> transitionTimers =
+            new EnumMap<>(BeerOrderStatusEnum.class);
+    private final Timer validateRoundTripTimer;
+    private final Timer allocateRoundTripTimer;
+    private final ThreadLocal<Long> eventStartNanos = new ThreadLocal<>();
+
+    public OrderStateChangeInterceptor(BeerOrderRepository beerOrderRepository, OrderStatusAwaiter orderStatusAwaiter,
+                                       StateMachineFactory<BeerOrderStatusEnum, BeerOrderEventsEnum> stateMachineFactory,
+                                       MeterRegistry meterRegistry) {
+        this.beerOrderRepository = beerOrderRepository;
+        this.orderStatusAwaiter = orderStatusAwaiter;
+        this.meterRegistry = meterRegistry;
+
+        for (BeerOrderEventsEnum event : BeerOrderEventsEnum.values()) {
+            eventCounters.put(event, Counter.builder("beer.order.events")
+                    .description("Events sent to the order state engine, accepted or not")
+                    .tag("event", event.name())
+                    .register(meterRegistry));
+        }
+
+        for (BeerOrderStatusEnum status : BeerOrderStatusEnum.values()) {
+            stateTimers.put(status, Timer.builder("beer.order.state.duration")
+                    .description("Time an order spent in a status before moving on, from its last modified date")
+                    .tag("status", status.name())
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(MAX_EXPECTED_STATE_DURATION)
+                    .register(meterRegistry));
+        }
+
+        for (Transition<BeerOrderStatusEnum, BeerOrderEventsEnum> transition : stateMachineFactory.getStateMachine().getTransitions()) {
+            if (transition.getTrigger() == null) {
+                continue;
+            }
+
+            BeerOrderStatusEnum source = transition.getSource().getId();
+            BeerOrderEventsEnum event = transition.getTrigger().getEvent();
+            BeerOrderStatusEnum target = transition.getTarget().getId();
+
+            transitionTimers.computeIfAbsent(source, status -> new EnumMap<>(BeerOrderEventsEnum.class))
+                    .computeIfAbsent(event, e -> new EnumMap<>(BeerOrderStatusEnum.class))
+                    .put(target, Timer.builder("beer.order.transition")
+                            .description("Time from an event being sent to its transition, actions included, being saved")
+                            .tag("source", source.name())
+                            .tag("target", target.name())
+                            .tag("event", event.name())
+                            .publishPercentileHistogram()
+                            .register(meterRegistry));
+        }
 
+        validateRoundTripTimer = registerRoundTripTimer(JmsConfig.VALIDATE_ORDER_QUEUE, JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE);
+        allocateRoundTripTimer = registerRoundTripTimer(JmsConfig.ALLOCATE_ORDER_QUEUE, JmsConfig.ALLOCATE_ORDER_RESPONSE_QUEUE);
+    }
+
+    @Override
+    public Message<BeerOrderEventsEnum> preEvent(Message<BeerOrderEventsEnum> message, StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> stateMachine) {
+        eventCounters.get(message.getPayload()).increment();
+        eventStartNanos.set(System.nanoTime());
+
+        return message;
+    }
+
+    @Override
     public void preStateChange(State<BeerOrderStatusEnum, BeerOrderEventsEnum> state, Message<BeerOrderEventsEnum> message, Transition<BeerOrderStatusEnum, BeerOrderEventsEnum> transition, StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> stateMachine) {
         log.debug("SM Interceptor - Pre-State Change");
 
         Optional.ofNullable(message)
                 .flatMap(msg -> Optional.ofNullable((String) msg.getHeaders().getOrDefault(BeerOrderManagerImpl.ORDER_ID_HEADER, " ")))
                 .ifPresent(orderId -> {
-                    log.debug("SM Interceptor - Saving state for order id: " + orderId + " Status: " + state.getId());
+                    log.debug("SM Interceptor - Saving state for order id: {} Status: {}", orderId, state.getId());
+
+                    try {
+                        BeerOrder beerOrder = beerOrderRepository.getOne(UUID.fromString(orderId));
+                        BeerOrderStatusEnum previousStatus = beerOrder.getOrderStatus();
+                        Timestamp previousModified = beerOrder.getLastModifiedDate();
 
-                    BeerOrder beerOrder = beerOrderRepository.getOne(UUID.fromString(orderId));
-                    beerOrder.setOrderStatus(state.getId());
-                    beerOrderRepository.saveAndFlush(beerOrder);
+                        beerOrderRepository.updateOrderStatus(beerOrder, state.getId());
+
+                        recordTimeInStatus(previousStatus, previousModified, message.getPayload());
+                    } catch (RuntimeException e) {
+                        // Spring Statemachine only logs interceptor exceptions, keep it for the engine to rethrow
+                        if (stateMachine != null) {
+                            stateMachine.getExtendedState().getVariables().put(STATE_SAVE_FAILURE, e);
+                        }
+                        throw e;
+                    }
                 });
     }
 
+    @Override
+    public void postStateChange(State<BeerOrderStatusEnum, BeerOrderEventsEnum> state, Message<BeerOrderEventsEnum> message, Transition<BeerOrderStatusEnum, BeerOrderEventsEnum> transition, StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> stateMachine) {
+        recordTransition(state, message, transition);
+
+        Optional.ofNullable(message)
+                .map(msg -> (String) msg.getHeaders().get(BeerOrderManagerImpl.ORDER_ID_HEADER))
+                .ifPresent(orderId -> orderStatusAwaiter.statusChanged(UUID.fromString(orderId), state.getId()));
+    }
+
+    private void recordTransition(State<BeerOrderStatusEnum, BeerOrderEventsEnum> state, Message<BeerOrderEventsEnum> message,
+                                  Transition<BeerOrderStatusEnum, BeerOrderEventsEnum> transition) {
+        Long start = eventStartNanos.get();
+        eventStartNanos.remove();
+
+        if (start == null || message == null || transition == null || transition.getSource() == null) {
+            return;
+        }
+
+        Timer timer = transitionTimers.getOrDefault(transition.getSource().getId(), Collections.emptyMap())
+                .getOrDefault(message.getPayload(), Collections.emptyMap())
+                .get(state.getId());
+
+        if (timer != null) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void recordTimeInStatus(BeerOrderStatusEnum status, Timestamp enteredAt, BeerOrderEventsEnum event) {
+        if (status == null || enteredAt == null) {
+            return;
+        }
+
+        long millis = Math.max(0, System.currentTimeMillis() - enteredAt.getTime());
+        stateTimers.get(status).record(millis, TimeUnit.MILLISECONDS);
+
+        Timer roundTripTimer = roundTripTimer(status, event);
+        if (roundTripTimer != null) {
+            roundTripTimer.record(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Timer roundTripTimer(BeerOrderStatusEnum status, BeerOrderEventsEnum event) {
+        switch (event) {
+            case VALIDATION_PASSED:
+            case VALIDATION_FAILED:
+                return status == BeerOrderStatusEnum.VALIDATION_PENDING ? validateRoundTripTimer : null;
+            case ALLOCATION_SUCCESS:
+            case ALLOCATION_NO_INVENTORY:
+            case ALLOCATION_FAILED:
+                return status == BeerOrderStatusEnum.ALLOCATION_PENDING ? allocateRoundTripTimer : null;
+            default:
+                return null;
+        }
+    }
+
+    private Timer registerRoundTripTimer(String requestQueue, String responseQueue) {
+        return Timer.builder("beer.order.jms.round.trip")
+                .description("Time from a request being queued to its response being applied to the order")
+                .tag("request", requestQueue)
+                .tag("response", responseQueue)
+                .publishPercentileHistogram()
+                .maximumExpectedValue(MAX_EXPECTED_STATE_DURATION)
+                .register(meterRegistry);
+    }
+
 }
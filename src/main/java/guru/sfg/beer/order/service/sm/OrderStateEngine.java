@@ -0,0 +1,22 @@
+package guru.sfg.beer.order.service.sm;
+
+import guru.sfg.beer.order.service.domain.BeerOrderEventsEnum;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import org.springframework.messaging.Message;
+
+/**
+ * Applies beer order events to an order in a given status. The implementation is selected with
+ * {@code sfg.beer-order.state-engine}: {@code spring} (default) runs pooled Spring state machines,
+ * {@code enum-table} uses the transition table compiled from the same configuration.
+ */
+public interface OrderStateEngine {
+
+    String ENGINE_PROPERTY = "sfg.beer-order.state-engine";
+
+    /**
+     * Failures saving the new status, such as optimistic locking conflicts, are thrown to the caller.
+     *
+     * @return true if a transition from the current status was triggered by the event
+     */
+    boolean sendEvent(BeerOrderStatusEnum currentStatus, Message<BeerOrderEventsEnum> message);
+}
@@ -0,0 +1,115 @@
+package guru.sfg.beer.order.service.sm;
+
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Completion signal for order state transitions. Callers register interest in a target status
+ * before firing an event, and {@link OrderStateChangeInterceptor} completes the registration once
+ * the new status has been saved, so no polling of the repository is needed.
+ */
+@Slf4j
+@Component
+public class OrderStatusAwaiter {
+
+    private final ConcurrentMap<StatusKey, CompletableFuture<BeerOrderStatusEnum>> pending = new ConcurrentHashMap<>();
+    private final Map<BeerOrderStatusEnum, Map<Outcome, Timer>> awaitTimers = new EnumMap<>(BeerOrderStatusEnum.class);
+    private final long timeoutMillis;
+
+    public OrderStatusAwaiter(MeterRegistry meterRegistry,
+                              @Value("${sfg.beer-order.status-await-timeout-ms:5000}") long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+
+        for (BeerOrderStatusEnum status : BeerOrderStatusEnum.values()) {
+            Map<Outcome, Timer> outcomeTimers = new EnumMap<>(Outcome.class);
+
+            for (Outcome outcome : Outcome.values()) {
+                outcomeTimers.put(outcome, Timer.builder("beer.order.status.await")
+                        .description("Time spent waiting for an order state transition to be saved")
+                        .tag("status", status.name())
+                        .tag("outcome", outcome.name().toLowerCase(Locale.ROOT))
+                        .register(meterRegistry));
+            }
+            awaitTimers.put(status, outcomeTimers);
+        }
+    }
+
+    /**
+     * Registers a wait for the given status, runs the trigger (normally sending a state machine event)
+     * and blocks until the transition has been saved or the timeout elapses. Returns false without
+     * waiting if the trigger reports that the event was not accepted in the order's current status.
+     */
+    public boolean sendAndAwait(UUID beerOrderId, BeerOrderStatusEnum statusEnum, BooleanSupplier trigger) {
+        StatusKey key = new StatusKey(beerOrderId, statusEnum);
+        CompletableFuture<BeerOrderStatusEnum> future = pending.computeIfAbsent(key, k -> new CompletableFuture<>());
+
+        long start = System.nanoTime();
+        Outcome outcome = Outcome.REACHED;
+
+        try {
+            if (!trigger.getAsBoolean()) {
+                outcome = Outcome.REJECTED;
+                return false;
+            }
+            future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RuntimeException e) {
+            outcome = Outcome.ERROR;
+            throw e;
+        } catch (TimeoutException e) {
+            outcome = Outcome.TIMEOUT;
+            throw new OrderStatusTimeoutException(beerOrderId, statusEnum, timeoutMillis);
+        } catch (InterruptedException e) {
+            outcome = Outcome.INTERRUPTED;
+            Thread.currentThread().interrupt();
+            throw new OrderStatusTimeoutException(beerOrderId, statusEnum, timeoutMillis);
+        } catch (ExecutionException e) {
+            outcome = Outcome.ERROR;
+            throw new IllegalStateException("Failed waiting for order " + beerOrderId + " to reach " + statusEnum, e.getCause());
+        } finally {
+            pending.remove(key, future);
+            awaitTimers.get(statusEnum).get(outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Called once a status change has been saved for the order.
+     */
+    public void statusChanged(UUID beerOrderId, BeerOrderStatusEnum statusEnum) {
+        CompletableFuture<BeerOrderStatusEnum> future = pending.get(new StatusKey(beerOrderId, statusEnum));
+
+        if (future != null) {
+            log.debug("Order status awaiter - signalling order id: {} Status: {}", beerOrderId, statusEnum);
+            future.complete(statusEnum);
+        }
+    }
+
+    private enum Outcome {
+        REACHED, REJECTED, TIMEOUT, INTERRUPTED, ERROR
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class StatusKey {
+        private final UUID beerOrderId;
+        private final BeerOrderStatusEnum status;
+    }
+}
@@ -0,0 +1,15 @@
+package guru.sfg.beer.order.service.sm;
+
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+
+import java.util.UUID;
+
+/**
+ * Raised when an order does not reach the expected status within the configured await timeout.
+ */
+public class OrderStatusTimeoutException extends RuntimeException {
+
+    public OrderStatusTimeoutException(UUID beerOrderId, BeerOrderStatusEnum statusEnum, long timeoutMillis) {
+        super("Order " + beerOrderId + " did not reach status " + statusEnum + " within " + timeoutMillis + "ms");
+    }
+}
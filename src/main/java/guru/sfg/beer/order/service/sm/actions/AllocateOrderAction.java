@@ -6,11 +6,11 @@ import guru.sfg.beer.order.service.domain.BeerOrderEventsEnum;
 import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
 import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
 import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
+import guru.sfg.beer.order.service.services.outbox.OutboxService;
 import guru.sfg.beer.order.service.web.mappers.BeerOrderMapper;
 import guru.sfg.brewery.model.events.AllocateOrderRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.jms.core.JmsTemplate;
 import org.springframework.statemachine.StateContext;
 import org.springframework.statemachine.action.Action;
 import org.springframework.stereotype.Component;
@@ -25,7 +25,7 @@ public class AllocateOrderAction implements Action<BeerOrderStatusEnum, BeerOrde
 
     private final BeerOrderRepository beerOrderRepository;
     private final BeerOrderMapper beerOrderMapper;
-    private final JmsTemplate jmsTemplate;
+    private final OutboxService outboxService;
 
 
     @Override
@@ -38,12 +38,12 @@ public class AllocateOrderAction implements Action<BeerOrderStatusEnum, BeerOrde
 
         beerOrderOptional.ifPresentOrElse(beerOrder -> {
 
-            jmsTemplate.convertAndSend(JmsConfig.ALLOCATE_ORDER_QUEUE, AllocateOrderRequest
+            outboxService.enqueue(JmsConfig.ALLOCATE_ORDER_QUEUE, beerOrder.getId(), AllocateOrderRequest
                     .builder()
                     .beerOrderDto(beerOrderMapper.beerOrderToDto(beerOrder))
                     .build());
 
-            log.debug("Allocate order request sent to queue for order: " + beerOrderId);
+            log.debug("Allocate order request sent to queue for order: {}", beerOrderId);
 
         }, () -> log.error("Beer Order Not Found!"));
 
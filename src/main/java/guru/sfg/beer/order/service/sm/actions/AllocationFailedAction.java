@@ -4,10 +4,10 @@ import guru.sfg.beer.order.service.config.JmsConfig;
 import guru.sfg.beer.order.service.domain.BeerOrderEventsEnum;
 import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
 import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
+import guru.sfg.beer.order.service.services.outbox.OutboxService;
 import guru.sfg.brewery.model.events.AllocationFailureEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.jms.core.JmsTemplate;
 import org.springframework.statemachine.StateContext;
 import org.springframework.statemachine.action.Action;
 import org.springframework.stereotype.Component;
@@ -19,7 +19,7 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class AllocationFailedAction implements Action<BeerOrderStatusEnum, BeerOrderEventsEnum> {
 
-    private final JmsTemplate jmsTemplate;
+    private final OutboxService outboxService;
 
     @Override
     public void execute(StateContext<BeerOrderStatusEnum, BeerOrderEventsEnum> stateContext) {
@@ -27,12 +27,12 @@ public class AllocationFailedAction implements Action<BeerOrderStatusEnum, BeerO
         String beerOrderId = (String) stateContext.getMessage().getHeaders()
                 .get(BeerOrderManagerImpl.ORDER_ID_HEADER);
 
-        jmsTemplate.convertAndSend(JmsConfig.ALLOCATE_FAILURE_QUEUE, AllocationFailureEvent
+        outboxService.enqueue(JmsConfig.ALLOCATE_FAILURE_QUEUE, UUID.fromString(beerOrderId), AllocationFailureEvent
                     .builder()
                     .orderId(UUID.fromString(beerOrderId))
                     .build());
 
-        log.debug("Sent allocation failure message to queue with order id: " + beerOrderId);
+        log.debug("Sent allocation failure message to queue with order id: {}", beerOrderId);
 
     }
 }
@@ -6,11 +6,11 @@ import guru.sfg.beer.order.service.domain.BeerOrderEventsEnum;
 import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
 import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
 import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
+import guru.sfg.beer.order.service.services.outbox.OutboxService;
 import guru.sfg.beer.order.service.web.mappers.BeerOrderMapper;
 import guru.sfg.brewery.model.events.DeallocateOrderRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.jms.core.JmsTemplate;
 import org.springframework.statemachine.StateContext;
 import org.springframework.statemachine.action.Action;
 import org.springframework.stereotype.Component;
@@ -24,7 +24,7 @@ import java.util.UUID;
 public class DeallocateOrderAction implements Action<BeerOrderStatusEnum, BeerOrderEventsEnum> {
     private final BeerOrderRepository beerOrderRepository;
     private final BeerOrderMapper beerOrderMapper;
-    private final JmsTemplate jmsTemplate;
+    private final OutboxService outboxService;
 
 
     @Override
@@ -37,12 +37,12 @@ public class DeallocateOrderAction implements Action<BeerOrderStatusEnum, BeerOr
 
         beerOrderOptional.ifPresentOrElse(beerOrder -> {
 
-            jmsTemplate.convertAndSend(JmsConfig.DEALLOCATE_ORDER_QUEUE, DeallocateOrderRequest
+            outboxService.enqueue(JmsConfig.DEALLOCATE_ORDER_QUEUE, beerOrder.getId(), DeallocateOrderRequest
                     .builder()
                     .beerOrderDto(beerOrderMapper.beerOrderToDto(beerOrder))
                     .build());
 
-            log.debug("Deallocate order request sent to queue for order: " + beerOrderId);
+            log.debug("Deallocate order request sent to queue for order: {}", beerOrderId);
 
         }, () -> log.error("Beer Order Not Found!"));
 
@@ -6,11 +6,11 @@ import guru.sfg.beer.order.service.domain.BeerOrderEventsEnum;
 import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
 import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
 import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
+import guru.sfg.beer.order.service.services.outbox.OutboxService;
 import guru.sfg.beer.order.service.web.mappers.BeerOrderMapper;
 import guru.sfg.brewery.model.events.ValidateOrderRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.jms.core.JmsTemplate;
 import org.springframework.statemachine.StateContext;
 import org.springframework.statemachine.action.Action;
 import org.springframework.stereotype.Component;
@@ -25,7 +25,7 @@ public class ValidateOrderAction implements Action<BeerOrderStatusEnum, BeerOrde
 
     private final BeerOrderRepository beerOrderRepository;
     private final BeerOrderMapper beerOrderMapper;
-    private final JmsTemplate jmsTemplate;
+    private final OutboxService outboxService;
 
     @Override
     public void execute(StateContext<BeerOrderStatusEnum, BeerOrderEventsEnum> stateContext) {
@@ -35,13 +35,13 @@ public class ValidateOrderAction implements Action<BeerOrderStatusEnum, BeerOrde
 
         beerOrderOptional.ifPresentOrElse(beerOrder -> {
 
-            jmsTemplate.convertAndSend(JmsConfig.VALIDATE_ORDER_QUEUE, ValidateOrderRequest.builder()
+            outboxService.enqueue(JmsConfig.VALIDATE_ORDER_QUEUE, beerOrder.getId(), ValidateOrderRequest.builder()
                     .beerOrderDto(beerOrderMapper.beerOrderToDto(beerOrder))
                     .build());
 
-        }, () -> log.error("ValidateOrderAction -- Order Not Found. Id: " + beerOrderId));
+        }, () -> log.error("ValidateOrderAction -- Order Not Found. Id: {}", beerOrderId));
 
 
-        log.debug("ValidateOrderAction -- Sent order validation request to queue for order: " + beerOrderId);
+        log.debug("ValidateOrderAction -- Sent order validation request to queue for order: {}", beerOrderId);
     }
 }
@@ -15,7 +15,7 @@ public class ValidationFailedAction  implements Action<BeerOrderStatusEnum, Beer
     public void execute(StateContext<BeerOrderStatusEnum, BeerOrderEventsEnum> stateContext) {
 
         String beerOrderId = (String) stateContext.getMessage().getHeaders().get(BeerOrderManagerImpl.ORDER_ID_HEADER);
-        log.error("Compensating Transaction...  Order Validation Failed for id: " + beerOrderId);
+        log.error("Compensating Transaction...  Order Validation Failed for id: {}", beerOrderId);
 
     }
 }
@@ -18,12 +18,19 @@
 package guru.sfg.beer.order.service.web.controllers;
 
 import guru.sfg.beer.order.service.services.BeerOrderService;
+import guru.sfg.beer.order.service.services.InvalidOrderCursorException;
+import guru.sfg.brewery.model.BeerOrderCursorPage;
 import guru.sfg.brewery.model.BeerOrderDto;
 import guru.sfg.brewery.model.BeerOrderPagedList;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.UUID;
 
 @RequestMapping("/api/v1/customers/{customerId}/")
@@ -32,6 +39,7 @@ public class BeerOrderController {
 
     private static final Integer DEFAULT_PAGE_NUMBER = 0;
     private static final Integer DEFAULT_PAGE_SIZE = 25;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
 
     private final BeerOrderService beerOrderService;
 
@@ -55,6 +63,38 @@ public class BeerOrderController {
         return beerOrderService.listOrders(customerId, PageRequest.of(pageNumber, pageSize));
     }
 
+    /**
+     * Keyset paged listing, newest first. Pass an empty cursor for the first page, then the returned
+     * {@code nextCursor} until it is null; the count query is skipped with {@code includeTotal=false}.
+     */
+    @GetMapping(value = "orders", params = "cursor")
+    public BeerOrderCursorPage listOrders(@PathVariable("customerId") UUID customerId,
+                                          @RequestParam("cursor") String cursor,
+                                          @RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                          @RequestParam(value = "includeTotal", defaultValue = "false") boolean includeTotal){
+
+        if (pageSize == null || pageSize < 1) {
+            pageSize = DEFAULT_PAGE_SIZE;
+        }
+
+        return beerOrderService.listOrders(customerId, cursor, pageSize, includeTotal);
+    }
+
+    @ExceptionHandler(InvalidOrderCursorException.class)
+    public void invalidCursor(InvalidOrderCursorException e, HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+
+    /**
+     * Full order history of the customer as newline delimited JSON, written while it is read.
+     */
+    @GetMapping("orders/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@PathVariable("customerId") UUID customerId){
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(outputStream -> beerOrderService.exportOrders(customerId, outputStream));
+    }
+
     @PostMapping("orders")
     @ResponseStatus(HttpStatus.CREATED)
     public BeerOrderDto placeOrder(@PathVariable("customerId") UUID customerId, @RequestBody BeerOrderDto beerOrderDto){
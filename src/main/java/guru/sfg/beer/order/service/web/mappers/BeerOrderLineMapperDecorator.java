@@ -2,13 +2,16 @@ package guru.sfg.beer.order.service.web.mappers;
 
 import guru.sfg.beer.order.service.domain.BeerOrderLine;
 import guru.sfg.beer.order.service.services.beer.BeerService;
+import guru.sfg.beer.order.service.services.beer.BeerServiceUnavailableException;
 import guru.sfg.brewery.model.BeerDto;
 import guru.sfg.brewery.model.BeerOrderLineDto;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 
 import java.util.Optional;
 
+@Slf4j
 public abstract class BeerOrderLineMapperDecorator implements BeerOrderLineMapper {
 
     private BeerService beerService;
@@ -28,11 +31,20 @@ public abstract class BeerOrderLineMapperDecorator implements BeerOrderLineMappe
     @Override
     public BeerOrderLineDto beerOrderLineToDto(BeerOrderLine line) {
         BeerOrderLineDto orderLineDto = beerOrderLineMapper.beerOrderLineToDto(line);
-        Optional<BeerDto> beerDtoOptional = beerService.getBeerByUpc(line.getUpc());
+        Optional<BeerDto> beerDtoOptional;
+
+        try {
+            beerDtoOptional = beerService.getBeerByUpc(line.getUpc());
+        } catch (BeerServiceUnavailableException e) {
+            log.debug("Order line {} mapped without beer details - {}", line.getId(), e.getMessage());
+            return orderLineDto;
+        }
 
         beerDtoOptional.ifPresent(beerDto -> {
             orderLineDto.setBeerName(beerDto.getBeerName());
-            orderLineDto.setBeerStyle(beerDto.getBeerStyle().toString());
+            if (beerDto.getBeerStyle() != null) {
+                orderLineDto.setBeerStyle(beerDto.getBeerStyle().toString());
+            }
             orderLineDto.setPrice(beerDto.getPrice());
             orderLineDto.setBeerId(beerDto.getId());
         });
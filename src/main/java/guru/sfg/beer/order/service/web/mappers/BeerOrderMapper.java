@@ -19,14 +19,20 @@ package guru.sfg.beer.order.service.web.mappers;
 
 import guru.sfg.beer.order.service.domain.BeerOrder;
 import guru.sfg.brewery.model.BeerOrderDto;
+import org.mapstruct.DecoratedWith;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
+import java.util.List;
+
 @Mapper(uses = {DateMapper.class, BeerOrderLineMapper.class})
+@DecoratedWith(BeerOrderMapperDecorator.class)
 public interface BeerOrderMapper {
 
     @Mapping(target = "customerId", source = "customer.id")
     BeerOrderDto beerOrderToDto(BeerOrder beerOrder);
 
+    List<BeerOrderDto> beerOrdersToDtos(List<BeerOrder> beerOrders);
+
     BeerOrder dtoToBeerOrder(BeerOrderDto dto);
 }
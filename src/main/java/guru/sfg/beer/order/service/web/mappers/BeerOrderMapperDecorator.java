@@ -0,0 +1,72 @@
+package guru.sfg.beer.order.service.web.mappers;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderLine;
+import guru.sfg.beer.order.service.services.beer.BeerService;
+import guru.sfg.beer.order.service.services.beer.BeerServiceUnavailableException;
+import guru.sfg.brewery.model.BeerOrderDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Looks up the beers for every line of the orders being mapped in one bulk call before delegating,
+ * so the per line enrichment in {@link BeerOrderLineMapperDecorator} is served from the beer cache.
+ * If the beer service is unavailable the orders are mapped without beer details.
+ */
+@Slf4j
+public abstract class BeerOrderMapperDecorator implements BeerOrderMapper {
+
+    private BeerService beerService;
+    private BeerOrderMapper beerOrderMapper;
+
+    @Autowired
+    public void setBeerService(BeerService beerService) {
+        this.beerService = beerService;
+    }
+
+    @Autowired
+    @Qualifier("delegate")
+    public void setBeerOrderMapper(BeerOrderMapper beerOrderMapper) {
+        this.beerOrderMapper = beerOrderMapper;
+    }
+
+    @Override
+    public BeerOrderDto beerOrderToDto(BeerOrder beerOrder) {
+        prefetchBeers(List.of(beerOrder));
+
+        return beerOrderMapper.beerOrderToDto(beerOrder);
+    }
+
+    @Override
+    public List<BeerOrderDto> beerOrdersToDtos(List<BeerOrder> beerOrders) {
+        prefetchBeers(beerOrders);
+
+        return beerOrderMapper.beerOrdersToDtos(beerOrders);
+    }
+
+    private void prefetchBeers(Collection<BeerOrder> beerOrders) {
+        Set<String> upcs = beerOrders.stream()
+                .filter(beerOrder -> beerOrder.getBeerOrderLines() != null)
+                .flatMap(beerOrder -> beerOrder.getBeerOrderLines().stream())
+                .map(BeerOrderLine::getUpc)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        if (upcs.isEmpty()) {
+            return;
+        }
+
+        try {
+            beerService.getBeersByUpcs(upcs);
+        } catch (BeerServiceUnavailableException e) {
+            log.warn("Mapping orders without beer details - {}", e.getMessage());
+        }
+    }
+}
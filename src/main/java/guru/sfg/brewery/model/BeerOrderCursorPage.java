@@ -0,0 +1,23 @@
+package guru.sfg.brewery.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paged order listing. {@code nextCursor} is null on the last page and
+ * {@code totalElements} is only set when the total was requested.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BeerOrderCursorPage {
+
+    private List<BeerOrderDto> content;
+    private String nextCursor;
+    private Long totalElements;
+}
@@ -0,0 +1,40 @@
+-- Converts the varchar(36) UUID keys of customer, beer_order and beer_order_line (and beer_id) to binary(16), for
+-- running with sfg.beer-order.uuid-storage=binary on MySQL 8. Existing ids keep their value:
+-- uuid_to_bin without the swap flag gives the same byte order Hibernate binds for java.util.UUID.
+-- Only applied when the binary-uuid location is added to spring.flyway.locations.
+
+alter table beer_order_line drop foreign key FKhkgofxhwx8yw9m3vat8mgtnxs;
+alter table beer_order drop foreign key FK5siih2e7vpx70nx4wexpxpji;
+drop index ix_beer_order_customer_created on beer_order;
+
+-- customer
+alter table customer add column id_bin binary(16);
+update customer set id_bin = uuid_to_bin(id);
+alter table customer drop primary key;
+alter table customer drop column id;
+alter table customer rename column id_bin to id;
+alter table customer modify id binary(16) not null first, add primary key (id);
+
+-- beer_order
+alter table beer_order add column id_bin binary(16), add column customer_id_bin binary(16);
+update beer_order set id_bin = uuid_to_bin(id), customer_id_bin = uuid_to_bin(customer_id);
+alter table beer_order drop primary key;
+alter table beer_order drop column id, drop column customer_id;
+alter table beer_order rename column id_bin to id, rename column customer_id_bin to customer_id;
+alter table beer_order modify id binary(16) not null first, add primary key (id);
+
+-- beer_order_line
+alter table beer_order_line add column id_bin binary(16), add column beer_order_id_bin binary(16),
+    add column beer_id_bin binary(16);
+update beer_order_line set id_bin = uuid_to_bin(id), beer_order_id_bin = uuid_to_bin(beer_order_id),
+    beer_id_bin = uuid_to_bin(beer_id);
+alter table beer_order_line drop primary key;
+alter table beer_order_line drop column id, drop column beer_order_id, drop column beer_id;
+alter table beer_order_line rename column id_bin to id, rename column beer_order_id_bin to beer_order_id,
+    rename column beer_id_bin to beer_id;
+alter table beer_order_line modify id binary(16) not null first, add primary key (id);
+
+-- foreign keys and indexes
+alter table beer_order add constraint FK5siih2e7vpx70nx4wexpxpji foreign key (customer_id) references customer (id);
+alter table beer_order_line add constraint FKhkgofxhwx8yw9m3vat8mgtnxs foreign key (beer_order_id) references beer_order (id);
+create index ix_beer_order_customer_created on beer_order (customer_id desc, created_date desc, id desc);
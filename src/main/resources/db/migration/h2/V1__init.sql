@@ -0,0 +1,39 @@
+-- Schema for the embedded H2 database, matching the MySQL migrations.
+
+create table customer (
+    id varchar(36) not null,
+    created_date timestamp,
+    last_modified_date timestamp,
+    version bigint,
+    api_key varchar(36),
+    customer_name varchar(255),
+    primary key (id)
+);
+
+create table beer_order (
+    id varchar(36) not null,
+    created_date timestamp,
+    last_modified_date timestamp,
+    version bigint,
+    customer_ref varchar(255),
+    order_status integer,
+    order_status_callback_url varchar(255),
+    customer_id varchar(36),
+    primary key (id)
+);
+
+create table beer_order_line (
+    id varchar(36) not null,
+    created_date timestamp,
+    last_modified_date timestamp,
+    version bigint,
+    beer_id varchar(36),
+    order_quantity integer,
+    quantity_allocated integer,
+    upc varchar(255),
+    beer_order_id varchar(36),
+    primary key (id)
+);
+
+alter table beer_order add constraint FK5siih2e7vpx70nx4wexpxpji foreign key (customer_id) references customer (id);
+alter table beer_order_line add constraint FKhkgofxhwx8yw9m3vat8mgtnxs foreign key (beer_order_id) references beer_order (id);
@@ -0,0 +1,6 @@
+-- Same secondary indexes as the MySQL migrations. H2 only sorts by an index whose column directions
+-- match the ORDER BY, hence the descending customer listing index.
+
+create index ix_beer_order_customer_created on beer_order (customer_id desc, created_date desc, id desc);
+create index ix_beer_order_status on beer_order (order_status);
+create index ix_customer_name on customer (customer_name);
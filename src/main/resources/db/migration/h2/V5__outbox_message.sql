@@ -0,0 +1,11 @@
+-- Transactional outbox, as in the MySQL migration of the same version.
+
+create table outbox_message (
+    id bigint not null auto_increment,
+    created_date timestamp,
+    destination varchar(255) not null,
+    order_id varchar(36) not null,
+    payload clob not null,
+    payload_type varchar(255) not null,
+    primary key (id)
+);
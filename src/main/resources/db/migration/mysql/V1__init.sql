@@ -0,0 +1,40 @@
+-- Schema as previously created by hibernate ddl-auto=update. Existing databases are baselined at this
+-- version and only pick up the later migrations.
+
+create table customer (
+    id varchar(36) not null,
+    created_date datetime(6),
+    last_modified_date datetime(6),
+    version bigint,
+    api_key varchar(36),
+    customer_name varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table beer_order (
+    id varchar(36) not null,
+    created_date datetime(6),
+    last_modified_date datetime(6),
+    version bigint,
+    customer_ref varchar(255),
+    order_status integer,
+    order_status_callback_url varchar(255),
+    customer_id varchar(36),
+    primary key (id)
+) engine=InnoDB;
+
+create table beer_order_line (
+    id varchar(36) not null,
+    created_date datetime(6),
+    last_modified_date datetime(6),
+    version bigint,
+    beer_id binary(255),
+    order_quantity integer,
+    quantity_allocated integer,
+    upc varchar(255),
+    beer_order_id varchar(36),
+    primary key (id)
+) engine=InnoDB;
+
+alter table beer_order add constraint FK5siih2e7vpx70nx4wexpxpji foreign key (customer_id) references customer (id);
+alter table beer_order_line add constraint FKhkgofxhwx8yw9m3vat8mgtnxs foreign key (beer_order_id) references beer_order (id);
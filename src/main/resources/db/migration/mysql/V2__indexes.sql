@@ -0,0 +1,9 @@
+-- Secondary indexes for the repository lookups:
+--   BeerOrderRepository customer listings (findAllByCustomer, id and keyset pages, export), newest first
+--   BeerOrderRepository.findAllByOrderStatus
+--   CustomerRepository.findAllByCustomerNameLike, prefix patterns
+-- beer_order_line.beer_order_id is covered by the index InnoDB creates for its foreign key.
+
+create index ix_beer_order_customer_created on beer_order (customer_id desc, created_date desc, id desc);
+create index ix_beer_order_status on beer_order (order_status);
+create index ix_customer_name on customer (customer_name);
@@ -0,0 +1,7 @@
+-- beer_order_line.beer_id was created as binary(255) holding a zero padded 16 byte UUID. It is now
+-- mapped like the other UUID columns (OrderUuidType), stored as varchar(36).
+
+alter table beer_order_line add column beer_id_char varchar(36);
+update beer_order_line set beer_id_char = bin_to_uuid(substring(beer_id, 1, 16)) where beer_id is not null;
+alter table beer_order_line drop column beer_id;
+alter table beer_order_line rename column beer_id_char to beer_id;
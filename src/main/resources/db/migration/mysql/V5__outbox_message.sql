@@ -0,0 +1,13 @@
+-- Transactional outbox for order event messages, written with the order change and published by the
+-- OutboxRelay. A separate migration so databases baselined at V1 get it too. Versioned after the opt-in
+-- binary-uuid V4, order_id stays varchar(36) with either key storage.
+
+create table outbox_message (
+    id bigint not null auto_increment,
+    created_date datetime(6),
+    destination varchar(255) not null,
+    order_id varchar(36) not null,
+    payload longtext not null,
+    payload_type varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
@@ -0,0 +1,96 @@
+package guru.sfg.beer.order.service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.sfg.brewery.model.BeerOrderDto;
+import guru.sfg.brewery.model.BeerOrderLineDto;
+import guru.sfg.brewery.model.events.AllocateOrderRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jms.core.JmsTemplate;
+
+import javax.jms.BytesMessage;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends allocation requests with the Smile payload format selected and checks they round trip, whether
+ * written from the event or transcoded from an outbox row, while JSON text messages are still read.
+ */
+@SpringBootTest(properties = "sfg.beer-order.jms.payload-format=smile")
+public class EventPayloadConverterIT {
+
+    @Autowired
+    JmsTemplate jmsTemplate;
+
+    @Autowired
+    EventPayloadConverter payloadConverter;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    AllocateOrderRequest request;
+
+    // a queue per test, the broker deletes an auto created queue once its last consumer has gone
+    String queue;
+
+    @BeforeEach
+    void setUp() {
+        jmsTemplate.setReceiveTimeout(5000);
+        queue = "payload-format-test-" + UUID.randomUUID();
+        request = AllocateOrderRequest.builder()
+                .beerOrderDto(BeerOrderDto.builder()
+                        .id(UUID.randomUUID())
+                        .customerRef("Smile")
+                        .beerOrderLines(List.of(BeerOrderLineDto.builder()
+                                .beerId(UUID.randomUUID())
+                                .upc("0631234200036")
+                                .orderQuantity(3)
+                                .build()))
+                        .build())
+                .build();
+    }
+
+    @Test
+    void testEventIsSentAsSmile() throws Exception {
+        jmsTemplate.convertAndSend(queue, request);
+
+        Message message = jmsTemplate.receive(queue);
+
+        assertThat(message).isInstanceOf(BytesMessage.class);
+        assertThat(message.getStringProperty(EventPayloadConverter.CONTENT_TYPE_PROPERTY))
+                .isEqualTo(EventPayloadConverter.SMILE_CONTENT_TYPE);
+        assertThat(message.getStringProperty(EventPayloadConverter.TYPE_ID_PROPERTY)).isEqualTo("allocate-order-request");
+        assertThat(payloadConverter.fromMessage(message)).isEqualTo(request);
+    }
+
+    @Test
+    void testOutboxJsonIsTranscodedToSmile() throws Exception {
+        String json = objectMapper.writeValueAsString(request);
+
+        jmsTemplate.send(queue, session -> payloadConverter.toMessage(json, AllocateOrderRequest.class.getName(), session));
+
+        Message message = jmsTemplate.receive(queue);
+
+        assertThat(message).isInstanceOf(BytesMessage.class);
+        assertThat(payloadConverter.fromMessage(message)).isEqualTo(request);
+    }
+
+    @Test
+    void testJsonMessagesAreStillRead() throws Exception {
+        String json = objectMapper.writeValueAsString(request);
+
+        jmsTemplate.send(queue, session -> {
+            TextMessage message = session.createTextMessage(json);
+            message.setStringProperty(EventPayloadConverter.TYPE_ID_PROPERTY, AllocateOrderRequest.class.getName());
+            return message;
+        });
+
+        assertThat(jmsTemplate.receiveAndConvert(queue)).isEqualTo(request);
+    }
+}
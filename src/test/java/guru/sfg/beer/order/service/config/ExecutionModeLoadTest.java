@@ -0,0 +1,176 @@
+package guru.sfg.beer.order.service.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Pushes a burst of tasks that each hold one of five pooled connections for a few milliseconds, like
+ * the JDBC work behind an order event, through the async executor of each execution mode and checks the
+ * peak number of platform threads and of tasks running at once. The platform pool is capped at eight
+ * threads and a queue of 50, so most of the burst overflows onto the submitting thread.
+ */
+class ExecutionModeLoadTest {
+
+    static final int TASKS = 400;
+    static final int POOL_SIZE = 5;
+    static final int MAX_POOL_SIZE = 8;
+    // threads the JVM starts on its own during a run, such as on demand JIT compiler threads
+    static final int JVM_THREADS = 2;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    BlockingWorkLimiter blockingWorkLimiter = new BlockingWorkLimiter(POOL_SIZE, meterRegistry);
+
+    @Test
+    void testPlatformModeThreadCountStaysBoundedUnderBurst() throws Exception {
+        LoadResult result = run(taskExecutor("platform"));
+
+        assertThat(result.completed).isEqualTo(TASKS);
+        // pool threads plus the submitting thread running rejected tasks itself
+        assertThat(result.maxConcurrent).isLessThanOrEqualTo(MAX_POOL_SIZE + 1);
+        assertThat(result.extraThreads).isLessThanOrEqualTo(MAX_POOL_SIZE + JVM_THREADS);
+        assertThat(meterRegistry.counter("beer.order.executor.rejected", "name", "async").count()).isPositive();
+    }
+
+    @Test
+    void testShedPolicyRejectsTasksWhenQueueIsFull() throws Exception {
+        ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) new TaskConfig()
+                .taskExecutor("platform", POOL_SIZE, blockingWorkLimiter, 1, 1, 1, TaskConfig.SHED_POLICY, meterRegistry);
+        executor.afterPropertiesSet();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try {
+            executor.execute(() -> awaitQuietly(release));
+            executor.execute(() -> awaitQuietly(release));
+
+            assertThatThrownBy(() -> executor.execute(() -> { }))
+                    .isInstanceOf(TaskRejectedException.class);
+            assertThat(meterRegistry.counter("beer.order.executor.rejected", "name", "async").count()).isEqualTo(1);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testVirtualModeStaysWithinConnectionPool() throws Exception {
+        LoadResult result = run(taskExecutor(TaskConfig.VIRTUAL_MODE));
+
+        assertThat(result.completed).isEqualTo(TASKS);
+        assertThat(result.maxConcurrent).isLessThanOrEqualTo(POOL_SIZE);
+    }
+
+    @Test
+    void testVirtualModeNeedsFarFewerThreadsThanThreadPerTask() throws Exception {
+        // what the platform mode did before its pool was bounded, a new platform thread for every task
+        LoadResult threadPerTask = run(new SimpleAsyncTaskExecutor("thread-per-task-"));
+        LoadResult virtual = run(taskExecutor(TaskConfig.VIRTUAL_MODE));
+
+        assertThat(virtual.completed).isEqualTo(TASKS);
+        // carrier threads, or with no virtual threads on this runtime the executor's own limit
+        assertThat(virtual.extraThreads)
+                .isLessThanOrEqualTo(Runtime.getRuntime().availableProcessors() + POOL_SIZE + JVM_THREADS);
+        assertThat(threadPerTask.extraThreads).isGreaterThan(virtual.extraThreads);
+    }
+
+    @Test
+    void testListenersAndAsyncTasksShareOneLimit() throws Exception {
+        // stands in for a listener container holding permits of the same limiter
+        SimpleAsyncTaskExecutor listenerConsumers = new SimpleAsyncTaskExecutor("listener-");
+        listenerConsumers.setTaskDecorator(blockingWorkLimiter::decorate);
+
+        LoadResult result = run(taskExecutor(TaskConfig.VIRTUAL_MODE), listenerConsumers);
+
+        assertThat(result.completed).isEqualTo(TASKS);
+        assertThat(result.maxConcurrent).isLessThanOrEqualTo(POOL_SIZE);
+    }
+
+    private TaskExecutor taskExecutor(String executionMode) throws Exception {
+        TaskExecutor executor = new TaskConfig()
+                .taskExecutor(executionMode, POOL_SIZE, blockingWorkLimiter, 2, MAX_POOL_SIZE, 50, "caller-runs",
+                        meterRegistry);
+        if (executor instanceof InitializingBean) {
+            ((InitializingBean) executor).afterPropertiesSet();
+        }
+        return executor;
+    }
+
+    /**
+     * Runs the burst, spread evenly over the executors.
+     */
+    private LoadResult run(TaskExecutor... executors) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Semaphore connectionPool = new Semaphore(POOL_SIZE);
+        CountDownLatch done = new CountDownLatch(TASKS);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+
+        threads.resetPeakThreadCount();
+        int threadsBefore = threads.getThreadCount();
+
+        for (int i = 0; i < TASKS; i++) {
+            executors[i % executors.length].execute(() -> {
+                maxConcurrent.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    connectionPool.acquire();
+                    try {
+                        Thread.sleep(5);
+                    } finally {
+                        connectionPool.release();
+                    }
+                    completed.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+
+        assertThat(done.await(1, TimeUnit.MINUTES)).isTrue();
+        for (TaskExecutor executor : executors) {
+            if (executor instanceof DisposableBean) {
+                ((DisposableBean) executor).destroy();
+            }
+        }
+
+        return new LoadResult(completed.get(), maxConcurrent.get(), threads.getPeakThreadCount() - threadsBefore);
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static class LoadResult {
+        final int completed;
+        final int maxConcurrent;
+        final int extraThreads;
+
+        LoadResult(int completed, int maxConcurrent, int extraThreads) {
+            this.completed = completed;
+            this.maxConcurrent = maxConcurrent;
+            this.extraThreads = extraThreads;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package guru.sfg.beer.order.service.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jms.DefaultJmsListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.jms.JmsProperties;
+import org.springframework.jms.config.SimpleJmsListenerEndpoint;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.jms.ConnectionFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class JmsConfigTest {
+
+    static final int MAX_CONCURRENCY = 3;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testVirtualModeCapsResponseConsumersAtTheLimit() {
+        DefaultMessageListenerContainer container = responseContainer(TaskConfig.VIRTUAL_MODE, "2-8");
+
+        assertThat(container.getConcurrentConsumers()).isEqualTo(2);
+        assertThat(container.getMaxConcurrentConsumers()).isEqualTo(MAX_CONCURRENCY);
+    }
+
+    @Test
+    void testPlatformModeKeepsConfiguredConcurrency() {
+        DefaultMessageListenerContainer container = responseContainer("platform", "2-8");
+
+        assertThat(container.getConcurrentConsumers()).isEqualTo(2);
+        assertThat(container.getMaxConcurrentConsumers()).isEqualTo(8);
+    }
+
+    @Test
+    void testCapConcurrency() {
+        assertThat(JmsConfig.capConcurrency("1-4", 5)).isEqualTo("1-4");
+        assertThat(JmsConfig.capConcurrency("1-16", 5)).isEqualTo("1-5");
+        assertThat(JmsConfig.capConcurrency("8-16", 5)).isEqualTo("5-5");
+        assertThat(JmsConfig.capConcurrency("8", 5)).isEqualTo("5-5");
+    }
+
+    private DefaultMessageListenerContainer responseContainer(String executionMode, String concurrency) {
+        // Boot's configurer is final, and sets its properties package-privately
+        DefaultJmsListenerContainerFactoryConfigurer configurer = new DefaultJmsListenerContainerFactoryConfigurer();
+        ReflectionTestUtils.setField(configurer, "jmsProperties", new JmsProperties());
+
+        MeteredJmsListenerContainerFactory factory = new JmsConfig().validateOrderResponseListenerFactory(
+                configurer, mock(ConnectionFactory.class),
+                concurrency, -1, "consumer", 1, 5, executionMode, MAX_CONCURRENCY,
+                new BlockingWorkLimiter(MAX_CONCURRENCY, meterRegistry), meterRegistry);
+
+        SimpleJmsListenerEndpoint endpoint = new SimpleJmsListenerEndpoint();
+        endpoint.setDestination(JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE);
+        endpoint.setMessageListener(message -> { });
+
+        return factory.createListenerContainer(endpoint);
+    }
+}
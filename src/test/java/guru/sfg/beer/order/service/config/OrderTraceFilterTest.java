@@ -0,0 +1,94 @@
+package guru.sfg.beer.order.service.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderTraceFilterTest {
+
+    LoggerContext loggerContext;
+    Logger serviceLogger;
+    Logger frameworkLogger;
+    OrderTraceFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        loggerContext = new LoggerContext();
+        serviceLogger = loggerContext.getLogger("guru.sfg.beer.order.service.sm.OrderStateChangeInterceptor");
+        serviceLogger.setLevel(Level.INFO);
+        frameworkLogger = loggerContext.getLogger("org.hibernate.SQL");
+        frameworkLogger.setLevel(Level.INFO);
+
+        filter = new OrderTraceFilter();
+        filter.setContext(loggerContext);
+        filter.setSampleRate(1);
+        filter.start();
+        loggerContext.addTurboFilter(filter);
+    }
+
+    @AfterEach
+    void clearMdc() {
+        MDC.clear();
+    }
+
+    @Test
+    void logsDebugOfServiceLoggersForSampledOrder() {
+        assertThat(serviceLogger.isDebugEnabled()).isFalse();
+
+        try (OrderTrace.Scope ignored = OrderTrace.open(UUID.randomUUID())) {
+            assertThat(serviceLogger.isDebugEnabled()).isTrue();
+            assertThat(serviceLogger.isTraceEnabled()).isFalse();
+            assertThat(frameworkLogger.isDebugEnabled()).isFalse();
+        }
+
+        assertThat(serviceLogger.isDebugEnabled()).isFalse();
+        assertThat(MDC.get(OrderTrace.ORDER_ID_KEY)).isNull();
+    }
+
+    @Test
+    void samplesAboutTheConfiguredFractionOfOrders() {
+        filter.setSampleRate(0.1);
+
+        long sampled = IntStream.range(0, 10_000)
+                .filter(i -> filter.isSampled(UUID.randomUUID().toString()))
+                .count();
+
+        assertThat(sampled).isBetween(800L, 1200L);
+
+        String orderId = UUID.randomUUID().toString();
+        assertThat(filter.isSampled(orderId)).isEqualTo(filter.isSampled(new String(orderId)));
+    }
+
+    @Test
+    void noOrdersSampledAtZeroRate() {
+        filter.setSampleRate(0);
+
+        try (OrderTrace.Scope ignored = OrderTrace.open(UUID.randomUUID())) {
+            assertThat(filter.decide(null, serviceLogger, Level.DEBUG, "line", null, null))
+                    .isEqualTo(FilterReply.NEUTRAL);
+        }
+    }
+
+    @Test
+    void nestedScopeRestoresOuterOrder() {
+        UUID outer = UUID.randomUUID();
+
+        try (OrderTrace.Scope ignored = OrderTrace.open(outer)) {
+            try (OrderTrace.Scope nested = OrderTrace.open(UUID.randomUUID())) {
+                assertThat(MDC.get(OrderTrace.ORDER_ID_KEY)).isNotEqualTo(outer.toString());
+            }
+
+            assertThat(MDC.get(OrderTrace.ORDER_ID_KEY)).isEqualTo(outer.toString());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package guru.sfg.beer.order.service.config;
+
+import guru.sfg.beer.order.service.services.BeerOrderManager;
+import guru.sfg.brewery.model.events.ValidateOrderResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+import javax.jms.ConnectionFactory;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Drains a backlog of validation responses through the validation listener with prefetch disabled and
+ * checks the container scales up from its minimum without passing its maximum while the per queue meters
+ * count every message. The order manager is mocked to take a few milliseconds per response, so the
+ * backlog outlasts the two initial consumers.
+ */
+@SpringBootTest(properties = {
+        "sfg.beer-order.jms.listener.validate-order-response.concurrency=2-6",
+        "sfg.beer-order.jms.listener.validate-order-response.consumer-window-size=0"})
+public class ResponseListenerFactoryIT {
+
+    static final int MESSAGES = 500;
+
+    @Autowired
+    JmsTemplate jmsTemplate;
+
+    @Autowired
+    ConnectionFactory connectionFactory;
+
+    @Autowired
+    JmsListenerEndpointRegistry endpointRegistry;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @MockBean
+    BeerOrderManager beerOrderManager;
+
+    @Test
+    void testResponseQueuesHaveTheirOwnContainers() {
+        DefaultMessageListenerContainer validateContainer = container(JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE);
+        DefaultMessageListenerContainer allocateContainer = container(JmsConfig.ALLOCATE_ORDER_RESPONSE_QUEUE);
+
+        assertThat(validateContainer).isInstanceOf(MeteredJmsListenerContainerFactory.MeteredMessageListenerContainer.class);
+        assertThat(validateContainer.getConcurrentConsumers()).isEqualTo(2);
+        assertThat(validateContainer.getMaxConcurrentConsumers()).isEqualTo(6);
+        assertThat(validateContainer.getCacheLevel()).isEqualTo(DefaultMessageListenerContainer.CACHE_CONSUMER);
+
+        assertThat(allocateContainer.getConcurrentConsumers()).isEqualTo(1);
+        assertThat(allocateContainer.getMaxConcurrentConsumers()).isEqualTo(4);
+
+        // window size 0 connects through the queue's own factory, -1 through the shared one
+        assertThat(validateContainer.getConnectionFactory()).isInstanceOf(ActiveMQConnectionFactory.class);
+        assertThat(((ActiveMQConnectionFactory) validateContainer.getConnectionFactory()).getConsumerWindowSize())
+                .isZero();
+        assertThat(allocateContainer.getConnectionFactory()).isSameAs(connectionFactory);
+    }
+
+    @Test
+    void testBacklogIsDrainedWithinConcurrencyRange() {
+        Timer processed = meterRegistry.timer("beer.order.jms.listener.messages",
+                "queue", JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE, "outcome", "success");
+        long processedBefore = processed.count();
+        int[] maxConsumers = new int[1];
+        doAnswer(invocation -> {
+            Thread.sleep(5);
+            return null;
+        }).when(beerOrderManager).processValidation(any(), anyBoolean());
+
+        for (int i = 0; i < MESSAGES; i++) {
+            jmsTemplate.convertAndSend(JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE, ValidateOrderResult.builder()
+                    .orderId(UUID.randomUUID())
+                    .isValid(true)
+                    .build());
+        }
+
+        await().atMost(Duration.ofMinutes(1)).until(() -> {
+            maxConsumers[0] = Math.max(maxConsumers[0], (int) meterRegistry.get("beer.order.jms.listener.consumers")
+                    .tag("queue", JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE)
+                    .gauge().value());
+            return processed.count() - processedBefore >= MESSAGES;
+        });
+
+        assertThat(maxConsumers[0]).isGreaterThan(2).isLessThanOrEqualTo(6);
+        verify(beerOrderManager, times(MESSAGES)).processValidation(any(), eq(true));
+        assertThat(meterRegistry.get("beer.order.jms.listener.messages")
+                .tag("queue", JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE)
+                .tag("outcome", "failure")
+                .timer().count()).isZero();
+    }
+
+    private DefaultMessageListenerContainer container(String destination) {
+        return endpointRegistry.getListenerContainers().stream()
+                .map(DefaultMessageListenerContainer.class::cast)
+                .filter(container -> destination.equals(container.getDestinationName()))
+                .findFirst()
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,119 @@
+package guru.sfg.beer.order.service.repositories;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderLine;
+import guru.sfg.beer.order.service.domain.Customer;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BeerOrderRepositoryTest {
+
+    @Autowired
+    BeerOrderRepository beerOrderRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder().customerName("Paging Customer").build());
+
+        for (int i = 0; i < 30; i++) {
+            BeerOrder beerOrder = BeerOrder.builder().customer(customer).customerRef("ref-" + i).build();
+
+            Set<BeerOrderLine> lines = new HashSet<>();
+            for (int line = 0; line < 3; line++) {
+                lines.add(BeerOrderLine.builder().beerOrder(beerOrder).upc("upc-" + line).orderQuantity(line + 1).build());
+            }
+            beerOrder.setBeerOrderLines(lines);
+
+            beerOrderRepository.save(beerOrder);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void testPageWithLinesUsesFixedNumberOfStatements() {
+        assertThat(statementsToLoadPage(5)).isEqualTo(3);
+        assertThat(statementsToLoadPage(25)).isEqualTo(3);
+    }
+
+    @Test
+    void testPageWithLinesKeepsPageOrderAndContent() {
+        Page<BeerOrder> page = beerOrderRepository.findPageWithLinesByCustomerId(customer.getId(),
+                PageRequest.of(1, 10, Sort.by("customerRef")));
+
+        assertThat(page.getTotalElements()).isEqualTo(30);
+        assertThat(page.getContent()).extracting(BeerOrder::getCustomerRef)
+                .isSortedAccordingTo(String::compareTo)
+                .hasSize(10);
+        assertThat(page.getContent()).allSatisfy(beerOrder -> assertThat(beerOrder.getBeerOrderLines()).hasSize(3));
+    }
+
+    @Test
+    void testUnknownCustomerGivesEmptyPage() {
+        Page<BeerOrder> page = beerOrderRepository.findPageWithLinesByCustomerId(UUID.randomUUID(), PageRequest.of(0, 10));
+
+        assertThat(page.getContent()).isEmpty();
+        assertThat(page.getTotalElements()).isZero();
+    }
+
+    @Test
+    void testKeysetSlicesWalkAllOrdersNewestFirst() {
+        List<BeerOrder> walked = new ArrayList<>();
+        List<BeerOrder> slice = beerOrderRepository.findSliceWithLinesByCustomerId(customer.getId(), null, null, 7);
+
+        while (!slice.isEmpty()) {
+            walked.addAll(slice);
+            BeerOrder last = slice.get(slice.size() - 1);
+            slice = beerOrderRepository.findSliceWithLinesByCustomerId(customer.getId(), last.getCreatedDate(), last.getId(), 7);
+        }
+
+        assertThat(walked).extracting(BeerOrder::getId).doesNotHaveDuplicates().hasSize(30);
+        assertThat(walked).extracting(BeerOrder::getCreatedDate).isSortedAccordingTo(Comparator.reverseOrder());
+        assertThat(walked).allSatisfy(beerOrder -> assertThat(beerOrder.getBeerOrderLines()).hasSize(3));
+    }
+
+    private long statementsToLoadPage(int pageSize) {
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<BeerOrder> page = beerOrderRepository.findPageWithLinesByCustomerId(customer.getId(), PageRequest.of(0, pageSize));
+        page.forEach(beerOrder -> beerOrder.getBeerOrderLines().forEach(BeerOrderLine::getUpc));
+
+        assertThat(page.getContent()).hasSize(pageSize);
+
+        // page of ids, count, fetch join of orders with customer and lines
+        return statistics.getPrepareStatementCount();
+    }
+}
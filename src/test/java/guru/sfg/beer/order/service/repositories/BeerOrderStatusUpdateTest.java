@@ -0,0 +1,144 @@
+package guru.sfg.beer.order.service.repositories;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderEventsEnum;
+import guru.sfg.beer.order.service.domain.BeerOrderLine;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
+import guru.sfg.beer.order.service.sm.OrderStateChangeInterceptor;
+import guru.sfg.beer.order.service.sm.OrderStatusAwaiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.config.StateMachineFactory;
+import org.springframework.statemachine.state.State;
+import org.springframework.statemachine.transition.Transition;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BeerOrderStatusUpdateTest {
+
+    @Autowired
+    BeerOrderRepository beerOrderRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    UUID orderId;
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Customer customer = customerRepository.save(Customer.builder().customerName("Status Customer").build());
+        BeerOrder beerOrder = BeerOrder.builder()
+                .customer(customer)
+                .customerRef("status-ref")
+                .orderStatus(BeerOrderStatusEnum.VALIDATION_PENDING)
+                .build();
+
+        Set<BeerOrderLine> lines = new HashSet<>();
+        for (int line = 0; line < 3; line++) {
+            lines.add(BeerOrderLine.builder().beerOrder(beerOrder).upc("upc-" + line).orderQuantity(line + 1).build());
+        }
+        beerOrder.setBeerOrderLines(lines);
+
+        orderId = beerOrderRepository.saveAndFlush(beerOrder).getId();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void testStatusUpdateIsOneStatement() {
+        BeerOrder beerOrder = beerOrderRepository.findById(orderId).get();
+        Long version = beerOrder.getVersion();
+        statistics.clear();
+
+        beerOrderRepository.updateOrderStatus(beerOrder, BeerOrderStatusEnum.VALIDATED);
+        entityManager.flush();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(beerOrder.getOrderStatus()).isEqualTo(BeerOrderStatusEnum.VALIDATED);
+        assertThat(beerOrder.getVersion()).isEqualTo(version + 1);
+
+        entityManager.clear();
+        BeerOrder reloaded = beerOrderRepository.findById(orderId).get();
+        assertThat(reloaded.getOrderStatus()).isEqualTo(BeerOrderStatusEnum.VALIDATED);
+        assertThat(reloaded.getVersion()).isEqualTo(version + 1);
+        assertThat(reloaded.getLastModifiedDate()).isEqualTo(beerOrder.getLastModifiedDate());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testTransitionIsOneStatement() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StateMachineFactory<BeerOrderStatusEnum, BeerOrderEventsEnum> stateMachineFactory = mock(StateMachineFactory.class);
+        when(stateMachineFactory.getStateMachine()).thenReturn(mock(StateMachine.class));
+        OrderStateChangeInterceptor interceptor = new OrderStateChangeInterceptor(beerOrderRepository,
+                new OrderStatusAwaiter(meterRegistry, 1000), stateMachineFactory, meterRegistry);
+        State<BeerOrderStatusEnum, BeerOrderEventsEnum> validated = mock(State.class);
+        when(validated.getId()).thenReturn(BeerOrderStatusEnum.VALIDATED);
+        Message<BeerOrderEventsEnum> message = MessageBuilder.withPayload(BeerOrderEventsEnum.VALIDATION_PASSED)
+                .setHeader(BeerOrderManagerImpl.ORDER_ID_HEADER, orderId.toString())
+                .build();
+
+        // the order manager has loaded the order before sending the event
+        beerOrderRepository.findById(orderId).get();
+        statistics.clear();
+
+        interceptor.preStateChange(validated, message, mock(Transition.class), null);
+        entityManager.flush();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testStaleVersionIsAConflict() {
+        BeerOrder beerOrder = beerOrderRepository.findById(orderId).get();
+        entityManager.createNativeQuery("update beer_order set version = version + 1 where customer_ref = 'status-ref'")
+                .executeUpdate();
+
+        assertThatThrownBy(() -> beerOrderRepository.updateOrderStatus(beerOrder, BeerOrderStatusEnum.VALIDATED))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(beerOrder.getOrderStatus()).isEqualTo(BeerOrderStatusEnum.VALIDATION_PENDING);
+    }
+
+    @Test
+    void testOtherPendingChangesAreStillFlushed() {
+        BeerOrder beerOrder = beerOrderRepository.findById(orderId).get();
+        beerOrder.setCustomerRef("changed-ref");
+
+        beerOrderRepository.updateOrderStatus(beerOrder, BeerOrderStatusEnum.VALIDATED);
+        entityManager.flush();
+        entityManager.clear();
+
+        BeerOrder reloaded = beerOrderRepository.findById(orderId).get();
+        assertThat(reloaded.getOrderStatus()).isEqualTo(BeerOrderStatusEnum.VALIDATED);
+        assertThat(reloaded.getCustomerRef()).isEqualTo("changed-ref");
+    }
+}
@@ -0,0 +1,65 @@
+package guru.sfg.beer.order.service.repositories;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderLine;
+import guru.sfg.beer.order.service.domain.Customer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Binary UUID key storage. The mode is normally passed to Hibernate by JpaConfig, which a data JPA test
+ * does not load, so it is set as a JPA property directly. The binary key migration is MySQL only, so the
+ * schema is generated by Hibernate here.
+ */
+@DataJpaTest(properties = {"spring.jpa.properties.sfg.beer-order.uuid-storage=binary",
+        "spring.flyway.enabled=false", "spring.jpa.hibernate.ddl-auto=create-drop"})
+class BinaryUuidStorageTest {
+
+    @Autowired
+    BeerOrderRepository beerOrderRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testKeysAreStoredAsTimeOrderedBinary() throws Exception {
+        Customer customer = customerRepository.save(Customer.builder().customerName("Binary Customer").build());
+
+        List<UUID> orderIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            BeerOrder beerOrder = BeerOrder.builder().customer(customer).customerRef("ref-" + i).build();
+            beerOrder.setBeerOrderLines(Set.of(BeerOrderLine.builder().beerOrder(beerOrder).upc("upc").orderQuantity(1).build()));
+            orderIds.add(beerOrderRepository.save(beerOrder).getId());
+            Thread.sleep(2);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(orderIds).allSatisfy(id -> assertThat(id.version()).isEqualTo(7));
+        assertThat(orderIds).isSorted();
+
+        byte[] storedId = jdbcTemplate.queryForObject("select id from beer_order where customer_ref = 'ref-0'", byte[].class);
+        assertThat(storedId).hasSize(16);
+
+        BeerOrder loaded = beerOrderRepository.findDistinctByIdIn(orderIds.subList(0, 1)).get(0);
+        assertThat(loaded.getCustomer().getId()).isEqualTo(customer.getId());
+        assertThat(loaded.getBeerOrderLines()).hasSize(1);
+    }
+}
@@ -0,0 +1,113 @@
+package guru.sfg.beer.order.service.repositories;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.domain.Customer;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the repository lookups against the Flyway schema on H2 in MySQL mode, captures the SQL Hibernate
+ * issues and checks its EXPLAIN plan reads through the intended index.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:index-usage;MODE=MySQL",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "guru.sfg.beer.order.service.repositories.RepositoryIndexUsageTest$CapturingStatementInspector"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RepositoryIndexUsageTest {
+
+    @Autowired
+    BeerOrderRepository beerOrderRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    EntityManager entityManager;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder().customerName("Tasting Room").build());
+        customerRepository.save(Customer.builder().customerName("Other Customer").build());
+
+        for (int i = 0; i < 20; i++) {
+            beerOrderRepository.save(BeerOrder.builder().customer(customer).customerRef("ref-" + i)
+                    .orderStatus(BeerOrderStatusEnum.values()[i % BeerOrderStatusEnum.values().length]).build());
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        CapturingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void testFindAllByOrderStatusUsesStatusIndex() {
+        beerOrderRepository.findAllByOrderStatus(BeerOrderStatusEnum.NEW);
+
+        assertThat(explain(lastSelect("beer_order"), BeerOrderStatusEnum.NEW.ordinal()))
+                .contains("IX_BEER_ORDER_STATUS");
+    }
+
+    @Test
+    void testFindAllByCustomerUsesCustomerIndex() {
+        beerOrderRepository.findAllByCustomer(customer, PageRequest.of(0, 10));
+
+        assertThat(explain(lastSelect("beer_order"), customer.getId().toString()))
+                .contains("IX_BEER_ORDER_CUSTOMER_CREATED");
+    }
+
+    @Test
+    void testFindAllByCustomerNameLikeUsesNameIndex() {
+        customerRepository.findAllByCustomerNameLike("Tasting%");
+
+        // Spring Data binds the like pattern and its escape character
+        assertThat(explain(lastSelect("customer"), "Tasting%", "\\"))
+                .contains("IX_CUSTOMER_NAME");
+    }
+
+    private String lastSelect(String table) {
+        List<String> statements = CapturingStatementInspector.STATEMENTS;
+
+        for (int i = statements.size() - 1; i >= 0; i--) {
+            String sql = statements.get(i);
+            if (sql.startsWith("select") && sql.contains("from " + table + " ")) {
+                return sql;
+            }
+        }
+
+        throw new AssertionError("No select from " + table + " captured in " + statements);
+    }
+
+    private String explain(String sql, Object... parameters) {
+        return jdbcTemplate.queryForObject("explain " + sql, String.class, parameters);
+    }
+
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package guru.sfg.beer.order.service.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.repositories.CustomerRepository;
+import guru.sfg.beer.order.service.services.beer.BeerServiceImpl;
+import guru.sfg.brewery.model.BeerOrderDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exports 500k single line orders and checks the heap retained while streaming stays flat. A smaller
+ * export of orders with one to three lines is checked line by line, as there the fetch joined stream
+ * returns several rows per order across chunk boundaries. Uses its own H2 database with lazy query
+ * execution, H2's equivalent of a driver honouring the fetch size, so the result set is not
+ * materialised up front.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:order-export;LAZY_QUERY_EXECUTION=1")
+@DirtiesContext
+public class BeerOrderExportIT {
+
+    static final int ORDERS = 500_000;
+    static final int CHECKED_ORDERS = 1_050;
+    static final int CHECKED_MAX_LINES = 3;
+    static final long MAX_RETAINED_BYTES = 64 * 1024 * 1024;
+
+    @Autowired
+    BeerOrderService beerOrderService;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    // mocked beneath the beer cache, a mocked BeerService would record every lookup and fill the heap itself
+    @MockBean
+    BeerServiceImpl beerService;
+
+    Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder().customerName("Export Customer").build());
+    }
+
+    @Test
+    void testExportStreamsAllOrdersWithFlatHeap() throws Exception {
+        insertOrders(ORDERS, 1);
+        HeapSamplingOutputStream outputStream = new HeapSamplingOutputStream();
+
+        beerOrderService.exportOrders(customer.getId(), outputStream);
+
+        assertThat(outputStream.lines).isEqualTo(ORDERS);
+        assertThat(outputStream.maxRetainedBytes).isLessThan(MAX_RETAINED_BYTES);
+
+        BeerOrderDto newest = objectMapper.readValue(outputStream.firstLine.toByteArray(), BeerOrderDto.class);
+        assertThat(newest.getCustomerRef()).isEqualTo("ref-" + ORDERS);
+        assertThat(newest.getBeerOrderLines()).hasSize(1);
+    }
+
+    @Test
+    void testExportWritesEachOrderOnceWithAllItsLines() throws Exception {
+        insertOrders(CHECKED_ORDERS, CHECKED_MAX_LINES);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        beerOrderService.exportOrders(customer.getId(), outputStream);
+
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(CHECKED_ORDERS);
+
+        Set<UUID> orderIds = new HashSet<>();
+        Set<UUID> lineIds = new HashSet<>();
+        for (String line : lines) {
+            BeerOrderDto beerOrderDto = objectMapper.readValue(line, BeerOrderDto.class);
+            int x = Integer.parseInt(beerOrderDto.getCustomerRef().substring("ref-".length()));
+
+            assertThat(orderIds.add(beerOrderDto.getId())).as("order %s written once", beerOrderDto.getId()).isTrue();
+            assertThat(beerOrderDto.getBeerOrderLines()).hasSize(expectedLines(x));
+            beerOrderDto.getBeerOrderLines().forEach(orderLine -> assertThat(lineIds.add(orderLine.getId())).isTrue());
+        }
+
+        assertThat(lineIds).hasSize(IntStream.rangeClosed(1, CHECKED_ORDERS).map(BeerOrderExportIT::expectedLines).sum());
+    }
+
+    // order x of the fixture has 1 + x % maxLines lines
+    private void insertOrders(int orders, int maxLines) {
+        jdbcTemplate.update("insert into beer_order (id, version, created_date, last_modified_date, customer_ref,"
+                + " customer_id, order_status) select random_uuid(), 0,"
+                + " dateadd('SECOND', x, timestamp '2020-01-01 00:00:00'), current_timestamp, 'ref-' || x, ?, 0"
+                + " from system_range(1, " + orders + ")", customer.getId().toString());
+        jdbcTemplate.update("insert into beer_order_line (id, version, created_date, last_modified_date,"
+                + " beer_order_id, upc, order_quantity, quantity_allocated)"
+                + " select random_uuid(), 0, o.created_date, o.created_date, o.id, '0631234200036', 1, 0"
+                + " from beer_order o join system_range(0, " + (maxLines - 1) + ") l"
+                + " on l.x <= mod(cast(substring(o.customer_ref, 5) as int), " + maxLines + ")"
+                + " where o.customer_id = ?", customer.getId().toString());
+    }
+
+    private static int expectedLines(int x) {
+        return 1 + x % CHECKED_MAX_LINES;
+    }
+
+    /**
+     * Discards the export, keeping the first line, and every 100k lines records the heap still in use
+     * after a collection relative to the start of the export.
+     */
+    static class HeapSamplingOutputStream extends OutputStream {
+
+        final ByteArrayOutputStream firstLine = new ByteArrayOutputStream();
+        final long baseline = retainedHeap();
+        long lines;
+        long maxRetainedBytes;
+
+        @Override
+        public void write(int b) {
+            if (lines == 0) {
+                firstLine.write(b);
+            }
+
+            if (b == '\n' && ++lines % 100_000 == 0) {
+                maxRetainedBytes = Math.max(maxRetainedBytes, retainedHeap() - baseline);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                write(b[i]);
+            }
+        }
+
+        static long retainedHeap() {
+            System.gc();
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package guru.sfg.beer.order.service.services;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderLine;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.CustomerRepository;
+import guru.sfg.brewery.model.BeerOrderDto;
+import guru.sfg.brewery.model.BeerOrderLineDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fires a cancel and two duplicate allocation responses at the same orders at once. Whichever order the
+ * handlers run in, the losers of each race are retried against the fresh status and every order must
+ * end up cancelled without an error reaching the caller.
+ */
+@SpringBootTest
+public class BeerOrderManagerConcurrencyIT {
+
+    static final int ORDERS = 40;
+
+    @Autowired
+    BeerOrderManager beerOrderManager;
+
+    @Autowired
+    BeerOrderRepository beerOrderRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    ExecutorService executor;
+
+    Customer testCustomer;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(12);
+        testCustomer = customerRepository.save(Customer.builder()
+                .customerName("Concurrency Customer")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testCancelRacingAllocationResponses() throws Exception {
+        List<BeerOrderDto> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(createAllocationPendingOrder());
+        }
+
+        double conflictsBefore = meterRegistry.counter("beer.order.transition.conflicts").count();
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+
+        for (BeerOrderDto order : orders) {
+            results.add(executor.submit(whenStarted(start, () -> beerOrderManager.cancelOrder(order.getId()))));
+            results.add(executor.submit(whenStarted(start, () -> beerOrderManager.allocateOrderPassed(order))));
+            results.add(executor.submit(whenStarted(start, () -> beerOrderManager.allocateOrderPassed(order))));
+        }
+
+        start.countDown();
+
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+
+        for (BeerOrderDto order : orders) {
+            assertThat(beerOrderRepository.findById(order.getId()).get().getOrderStatus())
+                    .isEqualTo(BeerOrderStatusEnum.CANCELLED);
+        }
+
+        assertThat(meterRegistry.counter("beer.order.transition.conflicts").count()).isGreaterThan(conflictsBefore);
+        assertThat(meterRegistry.counter("beer.order.transition.retries.exhausted").count()).isZero();
+    }
+
+    private Callable<Void> whenStarted(CountDownLatch start, Runnable handler) {
+        return () -> {
+            start.await();
+            handler.run();
+            return null;
+        };
+    }
+
+    private BeerOrderDto createAllocationPendingOrder() {
+        return transactionTemplate.execute(status -> {
+            BeerOrder beerOrder = BeerOrder.builder()
+                    .customer(testCustomer)
+                    .orderStatus(BeerOrderStatusEnum.ALLOCATION_PENDING)
+                    .build();
+
+            beerOrder.setBeerOrderLines(Set.of(BeerOrderLine.builder()
+                    .beerId(UUID.randomUUID())
+                    .upc("12345")
+                    .orderQuantity(2)
+                    .beerOrder(beerOrder)
+                    .build()));
+
+            BeerOrder saved = beerOrderRepository.saveAndFlush(beerOrder);
+            BeerOrderLine line = saved.getBeerOrderLines().iterator().next();
+
+            return BeerOrderDto.builder()
+                    .id(saved.getId())
+                    .beerOrderLines(List.of(BeerOrderLineDto.builder()
+                            .id(line.getId())
+                            .quantityAllocated(2)
+                            .build()))
+                    .build();
+        });
+    }
+}
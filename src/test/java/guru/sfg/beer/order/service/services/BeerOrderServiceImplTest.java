@@ -0,0 +1,64 @@
+package guru.sfg.beer.order.service.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.CustomerRepository;
+import guru.sfg.beer.order.service.web.mappers.BeerOrderMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BeerOrderServiceImplTest {
+
+    static final int MAX_PAGE_SIZE = 50;
+
+    UUID customerId = UUID.randomUUID();
+    BeerOrderRepository beerOrderRepository;
+    BeerOrderServiceImpl beerOrderService;
+
+    @BeforeEach
+    void setUp() {
+        beerOrderRepository = mock(BeerOrderRepository.class);
+        CustomerRepository customerRepository = mock(CustomerRepository.class);
+        when(customerRepository.existsById(customerId)).thenReturn(true);
+
+        beerOrderService = new BeerOrderServiceImpl(beerOrderRepository, customerRepository, mock(BeerOrderMapper.class),
+                mock(BeerOrderManager.class), mock(EntityManager.class), new ObjectMapper());
+        ReflectionTestUtils.setField(beerOrderService, "maxCursorPageSize", MAX_PAGE_SIZE);
+    }
+
+    @Test
+    void testCursorPageSizeIsCappedBeforeTheLookAheadRow() {
+        beerOrderService.listOrders(customerId, "", Integer.MAX_VALUE, false);
+
+        verify(beerOrderRepository).findSliceWithLinesByCustomerId(eq(customerId), isNull(), isNull(),
+                eq(MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void testCursorPageSizeBelowOneIsRejected() {
+        assertThatThrownBy(() -> beerOrderService.listOrders(customerId, "", 0, false))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        verify(beerOrderRepository, never()).findSliceWithLinesByCustomerId(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testMalformedCursorIsRejected() {
+        assertThatThrownBy(() -> beerOrderService.listOrders(customerId, "not-a-cursor", 10, false))
+                .isInstanceOf(InvalidOrderCursorException.class);
+    }
+}
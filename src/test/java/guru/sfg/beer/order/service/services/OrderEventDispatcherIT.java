@@ -0,0 +1,162 @@
+package guru.sfg.beer.order.service.services;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderLine;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.CustomerRepository;
+import guru.sfg.beer.order.service.repositories.OutboxMessageRepository;
+import guru.sfg.brewery.model.BeerOrderDto;
+import guru.sfg.brewery.model.BeerOrderLineDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Races a cancel against two duplicate allocation responses for each of 10,000 orders through the
+ * dispatch lanes. Events for an order are serialized on its lane, so no handler should ever see a
+ * version conflict.
+ */
+@SpringBootTest(properties = {
+        OrderEventDispatcher.DISPATCH_ENABLED_PROPERTY + "=true",
+        "sfg.beer-order.dispatch.lanes=8"})
+public class OrderEventDispatcherIT {
+
+    static final int ORDERS = 10_000;
+
+    @Autowired
+    BeerOrderManager beerOrderManager;
+
+    @Autowired
+    BeerOrderRepository beerOrderRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    ExecutorService executor;
+
+    Customer testCustomer;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(32);
+        testCustomer = customerRepository.save(Customer.builder()
+                .customerName("Dispatch Customer")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentEventsPerOrderDoNotConflict() throws Exception {
+        assertThat(beerOrderManager).isInstanceOf(OrderEventDispatcher.class);
+
+        List<BeerOrderDto> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i += 500) {
+            orders.addAll(createAllocationPendingOrders(500));
+        }
+
+        double conflictsBefore = meterRegistry.counter("beer.order.transition.conflicts").count();
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>(ORDERS * 3);
+
+        for (BeerOrderDto order : orders) {
+            results.add(executor.submit(() -> {
+                start.await();
+                beerOrderManager.allocateOrderPassed(order);
+                return null;
+            }));
+            results.add(executor.submit(() -> {
+                start.await();
+                beerOrderManager.cancelOrder(order.getId());
+                return null;
+            }));
+            results.add(executor.submit(() -> {
+                start.await();
+                beerOrderManager.allocateOrderPassed(order);
+                return null;
+            }));
+        }
+
+        start.countDown();
+
+        for (Future<?> result : results) {
+            result.get(5, TimeUnit.MINUTES);
+        }
+
+        assertThat(meterRegistry.counter("beer.order.transition.conflicts").count()).isEqualTo(conflictsBefore);
+        List<UUID> orderIds = orders.stream().map(BeerOrderDto::getId).collect(Collectors.toList());
+        assertThat(beerOrderRepository.findAllById(orderIds))
+                .hasSize(ORDERS)
+                .allMatch(beerOrder -> beerOrder.getOrderStatus() == BeerOrderStatusEnum.CANCELLED);
+
+        // let the relay publish the deallocation requests before the next test drains the queue
+        await().atMost(Duration.ofMinutes(1)).until(() -> outboxMessageRepository.count() == 0);
+    }
+
+    private List<BeerOrderDto> createAllocationPendingOrders(int count) {
+        return transactionTemplate.execute(status -> {
+            List<BeerOrderDto> created = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                BeerOrder beerOrder = BeerOrder.builder()
+                        .customer(testCustomer)
+                        .orderStatus(BeerOrderStatusEnum.ALLOCATION_PENDING)
+                        .build();
+
+                beerOrder.setBeerOrderLines(Set.of(BeerOrderLine.builder()
+                        .beerId(UUID.randomUUID())
+                        .upc("12345")
+                        .orderQuantity(2)
+                        .beerOrder(beerOrder)
+                        .build()));
+
+                BeerOrder saved = beerOrderRepository.save(beerOrder);
+                BeerOrderLine line = saved.getBeerOrderLines().iterator().next();
+
+                created.add(BeerOrderDto.builder()
+                        .id(saved.getId())
+                        .beerOrderLines(List.of(BeerOrderLineDto.builder()
+                                .id(line.getId())
+                                .quantityAllocated(2)
+                                .build()))
+                        .build());
+            }
+
+            return created;
+        });
+    }
+}
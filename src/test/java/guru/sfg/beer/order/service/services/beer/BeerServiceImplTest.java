@@ -0,0 +1,246 @@
+package guru.sfg.beer.order.service.services.beer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import guru.sfg.brewery.model.BeerDto;
+import guru.sfg.beer.order.service.config.BlockingWorkLimiter;
+import guru.sfg.beer.order.service.config.TaskConfig;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.notFound;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.serverError;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BeerServiceImplTest {
+
+    static final List<String> UPCS = List.of("0631234200036", "0631234300019", "0083783375213");
+    static final int LOOKUP_DELAY_MILLIS = 500;
+    static final int BULKHEAD_SIZE = 20;
+    static final int MAX_CONCURRENCY = 2;
+
+    WireMockServer wireMockServer;
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    BlockingWorkLimiter blockingWorkLimiter = new BlockingWorkLimiter(MAX_CONCURRENCY, meterRegistry);
+    ObjectMapper objectMapper = new ObjectMapper();
+    BeerServiceImpl beerServiceImpl;
+    CachingBeerService cachingBeerService;
+
+    @BeforeEach
+    void setUp() {
+        wireMockServer = new WireMockServer(wireMockConfig().dynamicPort());
+        wireMockServer.start();
+
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .build());
+
+        beerServiceImpl = new BeerServiceImpl(new RestTemplateBuilder(), circuitBreakerRegistry,
+                BulkheadRegistry.ofDefaults(), 10, 1000, 1000, 4, "platform", blockingWorkLimiter);
+        beerServiceImpl.setBeerServiceHost(wireMockServer.baseUrl());
+        cachingBeerService = new CachingBeerService(beerServiceImpl, blockingWorkLimiter, meterRegistry, 100, 300, 30);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        wireMockServer.stop();
+        beerServiceImpl.shutdown();
+    }
+
+    @Test
+    void testPageOfOrdersCostsOneBulkCall() throws Exception {
+        wireMockServer.stubFor(post(urlEqualTo(BeerServiceImpl.BEER_UPCS_PATH_V1))
+                .willReturn(okJson(objectMapper.writeValueAsString(UPCS.stream().map(this::beer).toArray()))));
+
+        // 25 orders with 3 lines each
+        List<String> lineUpcs = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            lineUpcs.addAll(UPCS);
+        }
+
+        Map<String, BeerDto> beers = cachingBeerService.getBeersByUpcs(lineUpcs);
+        lineUpcs.forEach(upc -> assertThat(cachingBeerService.getBeerByUpc(upc)).isPresent());
+
+        assertThat(beers).containsOnlyKeys(UPCS);
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo(BeerServiceImpl.BEER_UPCS_PATH_V1)));
+        wireMockServer.verify(0, getRequestedFor(anyUrl()));
+    }
+
+    @Test
+    void testFallsBackToFanOutWhenBulkIsUnsupported() throws Exception {
+        wireMockServer.stubFor(post(urlEqualTo(BeerServiceImpl.BEER_UPCS_PATH_V1)).willReturn(notFound()));
+        for (String upc : UPCS) {
+            wireMockServer.stubFor(get(BeerServiceImpl.BEER_UPC_PATH_V1 + upc)
+                    .willReturn(okJson(objectMapper.writeValueAsString(beer(upc)))));
+        }
+
+        assertThat(beerServiceImpl.getBeersByUpcs(UPCS)).containsOnlyKeys(UPCS);
+        assertThat(beerServiceImpl.getBeersByUpcs(UPCS)).containsOnlyKeys(UPCS);
+
+        // bulk endpoint is only tried once
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo(BeerServiceImpl.BEER_UPCS_PATH_V1)));
+        wireMockServer.verify(6, getRequestedFor(urlPathMatching(BeerServiceImpl.BEER_UPC_PATH_V1 + ".*")));
+    }
+
+    @Test
+    void testUnknownUpcsAreLeftOut() throws Exception {
+        wireMockServer.stubFor(post(urlEqualTo(BeerServiceImpl.BEER_UPCS_PATH_V1))
+                .willReturn(okJson(objectMapper.writeValueAsString(new BeerDto[]{beer(UPCS.get(0))}))));
+
+        assertThat(cachingBeerService.getBeersByUpcs(UPCS)).containsOnlyKeys(UPCS.get(0));
+        assertThat(cachingBeerService.getBeerByUpc(UPCS.get(1))).isEmpty();
+
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo(BeerServiceImpl.BEER_UPCS_PATH_V1)));
+        wireMockServer.verify(0, getRequestedFor(anyUrl()));
+    }
+
+    @Test
+    void testOrderLinesAreLookedUpConcurrently() throws Exception {
+        wireMockServer.stubFor(post(urlEqualTo(BeerServiceImpl.BEER_UPCS_PATH_V1)).willReturn(notFound()));
+        for (String upc : UPCS) {
+            wireMockServer.stubFor(get(BeerServiceImpl.BEER_UPC_PATH_V1 + upc)
+                    .willReturn(okJson(objectMapper.writeValueAsString(beer(upc))).withFixedDelay(LOOKUP_DELAY_MILLIS)));
+        }
+
+        assertThat(cachingBeerService.getBeersByUpcs(UPCS)).containsOnlyKeys(UPCS);
+
+        // one after the other, each lookup would only be sent once the previous one had been answered
+        List<Long> received = wireMockServer.findAll(getRequestedFor(urlPathMatching(BeerServiceImpl.BEER_UPC_PATH_V1 + ".*")))
+                .stream()
+                .map(request -> request.getLoggedDate().getTime())
+                .sorted()
+                .collect(Collectors.toList());
+        assertThat(received).hasSize(UPCS.size());
+        assertThat(received.get(received.size() - 1)).isLessThan(received.get(0) + LOOKUP_DELAY_MILLIS);
+    }
+
+    @Test
+    void testVirtualFanOutWaitsForTheBulkheadInsteadOfFailing() throws Exception {
+        // as configured for the service: 20 concurrent calls, rejected rather than queued beyond that
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(BULKHEAD_SIZE)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        BeerServiceImpl virtualBeerService = new BeerServiceImpl(new RestTemplateBuilder(),
+                CircuitBreakerRegistry.ofDefaults(), bulkheadRegistry, BULKHEAD_SIZE, 1000, 1000, 4,
+                TaskConfig.VIRTUAL_MODE, new BlockingWorkLimiter(BULKHEAD_SIZE + 10, meterRegistry));
+        virtualBeerService.setBeerServiceHost(wireMockServer.baseUrl());
+
+        List<String> upcs = IntStream.range(0, BULKHEAD_SIZE + 10)
+                .mapToObj(i -> String.format("%013d", i))
+                .collect(Collectors.toList());
+        wireMockServer.stubFor(post(urlEqualTo(BeerServiceImpl.BEER_UPCS_PATH_V1)).willReturn(notFound()));
+        for (String upc : upcs) {
+            wireMockServer.stubFor(get(BeerServiceImpl.BEER_UPC_PATH_V1 + upc)
+                    .willReturn(okJson(objectMapper.writeValueAsString(beer(upc))).withFixedDelay(100)));
+        }
+
+        try {
+            assertThat(virtualBeerService.getBeersByUpcs(upcs)).containsOnlyKeys(upcs);
+        } finally {
+            virtualBeerService.shutdown();
+        }
+
+        wireMockServer.verify(upcs.size(), getRequestedFor(urlPathMatching(BeerServiceImpl.BEER_UPC_PATH_V1 + ".*")));
+    }
+
+    @Test
+    void testVirtualFanOutSharesTheBlockingWorkLimit() throws Exception {
+        BeerServiceImpl virtualBeerService = new BeerServiceImpl(new RestTemplateBuilder(),
+                CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults(), 10, 1000, 1000, 4,
+                TaskConfig.VIRTUAL_MODE, blockingWorkLimiter);
+        virtualBeerService.setBeerServiceHost(wireMockServer.baseUrl());
+        CachingBeerService virtualCachingBeerService = new CachingBeerService(virtualBeerService, blockingWorkLimiter,
+                meterRegistry, 100, 300, 30);
+
+        List<String> upcs = IntStream.range(0, MAX_CONCURRENCY * 3)
+                .mapToObj(i -> String.format("%013d", i))
+                .collect(Collectors.toList());
+        wireMockServer.stubFor(post(urlEqualTo(BeerServiceImpl.BEER_UPCS_PATH_V1)).willReturn(notFound()));
+        for (String upc : upcs) {
+            wireMockServer.stubFor(get(BeerServiceImpl.BEER_UPC_PATH_V1 + upc)
+                    .willReturn(okJson(objectMapper.writeValueAsString(beer(upc))).withFixedDelay(LOOKUP_DELAY_MILLIS)));
+        }
+
+        // the caller holds a permit like a listener would, and lends it to the lookups while it waits
+        blockingWorkLimiter.acquire();
+        try {
+            assertThat(virtualCachingBeerService.getBeersByUpcs(upcs)).containsOnlyKeys(upcs);
+        } finally {
+            blockingWorkLimiter.release();
+            virtualBeerService.shutdown();
+        }
+
+        // with two permits, the third lookup is only sent once one of the first two has been answered
+        List<Long> received = wireMockServer.findAll(getRequestedFor(urlPathMatching(BeerServiceImpl.BEER_UPC_PATH_V1 + ".*")))
+                .stream()
+                .map(request -> request.getLoggedDate().getTime())
+                .sorted()
+                .collect(Collectors.toList());
+        assertThat(received).hasSize(upcs.size());
+        assertThat(received.get(MAX_CONCURRENCY)).isGreaterThanOrEqualTo(received.get(0) + LOOKUP_DELAY_MILLIS);
+        assertThat(meterRegistry.get("beer.order.virtual.permits.available").gauge().value()).isEqualTo(MAX_CONCURRENCY);
+    }
+
+    @Test
+    void testSlowBeerServiceTimesOut() throws Exception {
+        wireMockServer.stubFor(get(BeerServiceImpl.BEER_UPC_PATH_V1 + UPCS.get(0))
+                .willReturn(okJson(objectMapper.writeValueAsString(beer(UPCS.get(0)))).withFixedDelay(3000)));
+
+        // the 1s read timeout ends the call, not the 3s response
+        BeerServiceUnavailableException exception = assertThrows(BeerServiceUnavailableException.class,
+                () -> cachingBeerService.getBeerByUpc(UPCS.get(0)));
+
+        assertThat(exception).hasRootCauseInstanceOf(SocketTimeoutException.class);
+        wireMockServer.verify(1, getRequestedFor(urlEqualTo(BeerServiceImpl.BEER_UPC_PATH_V1 + UPCS.get(0))));
+    }
+
+    @Test
+    void testOpenCircuitFailsFastWithoutCallingBeerService() {
+        wireMockServer.stubFor(get(urlPathMatching(BeerServiceImpl.BEER_UPC_PATH_V1 + ".*")).willReturn(serverError()));
+
+        for (int i = 0; i < 4; i++) {
+            String upc = "failing-" + i;
+            assertThrows(BeerServiceUnavailableException.class, () -> cachingBeerService.getBeerByUpc(upc));
+        }
+
+        assertThrows(BeerServiceUnavailableException.class, () -> cachingBeerService.getBeerByUpc(UPCS.get(1)));
+        assertThrows(BeerServiceUnavailableException.class, () -> cachingBeerService.getBeersByUpcs(UPCS));
+
+        // the breaker opens after four failures and stops the remaining calls
+        wireMockServer.verify(4, getRequestedFor(anyUrl()));
+        wireMockServer.verify(0, postRequestedFor(anyUrl()));
+    }
+
+    private BeerDto beer(String upc) {
+        return BeerDto.builder().id(UUID.randomUUID()).upc(upc).beerName("Beer " + upc).build();
+    }
+}
@@ -0,0 +1,88 @@
+package guru.sfg.beer.order.service.services.beer;
+
+import guru.sfg.beer.order.service.config.BlockingWorkLimiter;
+import guru.sfg.brewery.model.BeerDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingBeerServiceTest {
+
+    BeerServiceImpl beerServiceImpl;
+    SimpleMeterRegistry meterRegistry;
+    CachingBeerService cachingBeerService;
+
+    @BeforeEach
+    void setUp() {
+        beerServiceImpl = mock(BeerServiceImpl.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cachingBeerService = new CachingBeerService(beerServiceImpl, new BlockingWorkLimiter(5, meterRegistry),
+                meterRegistry, 100, 300, 30);
+    }
+
+    @Test
+    void testRepeatedLookupsHitCache() {
+        when(beerServiceImpl.getBeerByUpcAsync("0631234200036")).thenReturn(CompletableFuture.completedFuture(
+                Optional.of(BeerDto.builder().id(UUID.randomUUID()).upc("0631234200036").build())));
+
+        // 25 orders with 3 lines sharing the same beers
+        for (int i = 0; i < 75; i++) {
+            assertThat(cachingBeerService.getBeerByUpc("0631234200036")).isPresent();
+        }
+
+        verify(beerServiceImpl, times(1)).getBeerByUpcAsync("0631234200036");
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(74);
+    }
+
+    @Test
+    void testUnknownUpcIsCachedAsEmpty() {
+        when(beerServiceImpl.getBeerByUpcAsync("unknown")).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+        assertThat(cachingBeerService.getBeerByUpc("unknown")).isEmpty();
+        assertThat(cachingBeerService.getBeerByUpc("unknown")).isEmpty();
+
+        verify(beerServiceImpl, times(1)).getBeerByUpcAsync("unknown");
+    }
+
+    @Test
+    void testConcurrentMissesShareOneRemoteCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(beerServiceImpl.getBeerByUpcAsync(anyString())).thenAnswer(invocation -> CompletableFuture.supplyAsync(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Optional.of(BeerDto.builder().upc(invocation.getArgument(0)).build());
+        }));
+
+        List<CompletableFuture<Optional<BeerDto>>> lookups = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            lookups.add(CompletableFuture.supplyAsync(() -> cachingBeerService.getBeerByUpc("0083783375213")));
+        }
+
+        Thread.sleep(100);
+        release.countDown();
+
+        for (CompletableFuture<Optional<BeerDto>> lookup : lookups) {
+            assertThat(lookup.get(5, TimeUnit.SECONDS)).isPresent();
+        }
+
+        verify(beerServiceImpl, times(1)).getBeerByUpcAsync("0083783375213");
+    }
+}
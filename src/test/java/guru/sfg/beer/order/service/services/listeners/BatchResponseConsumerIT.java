@@ -0,0 +1,173 @@
+package guru.sfg.beer.order.service.services.listeners;
+
+import guru.sfg.beer.order.service.config.EventPayloadConverter;
+import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderLine;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.domain.Customer;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.repositories.CustomerRepository;
+import guru.sfg.brewery.model.BeerOrderDto;
+import guru.sfg.brewery.model.BeerOrderLineDto;
+import guru.sfg.brewery.model.events.AllocateOrderResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Sends allocation responses with one undeserializable message in the middle, committed together so the
+ * consumer drains them as one batch. The batch fails, every good response must still be applied exactly
+ * once, and only the bad message ends up on the dead letter queue.
+ */
+@SpringBootTest(properties = {
+        BatchResponseConsumer.BATCH_ENABLED_PROPERTY + "=true",
+        "sfg.beer-order.jms.batch.max-wait-ms=1000"
+})
+public class BatchResponseConsumerIT {
+
+    static final int ORDERS = 8;
+    static final String DEAD_LETTER_QUEUE = "DLQ";
+
+    @Autowired
+    ConnectionFactory connectionFactory;
+
+    @Autowired
+    MessageConverter messageConverter;
+
+    @Autowired
+    BeerOrderRepository beerOrderRepository;
+
+    @Autowired
+    CustomerRepository customerRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Test
+    void testPoisonMessageOnlyRedeliversItself() throws Exception {
+        Customer customer = customerRepository.save(Customer.builder().customerName("Batch Customer").build());
+        List<BeerOrderDto> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(createAllocationPendingOrder(customer));
+        }
+
+        double eventsBefore = allocationSuccessEvents();
+        double failedBatchesBefore = counter("beer.order.jms.batch.failures");
+        double appliedBefore = counter("beer.order.jms.batch.messages");
+        String poisonId = sendWithPoison(orders);
+
+        await().untilAsserted(() -> transactionTemplate.executeWithoutResult(status -> {
+            for (BeerOrderDto order : orders) {
+                BeerOrder beerOrder = beerOrderRepository.findById(order.getId()).get();
+                assertThat(beerOrder.getOrderStatus()).isEqualTo(BeerOrderStatusEnum.ALLOCATED);
+                assertThat(beerOrder.getBeerOrderLines().iterator().next().getQuantityAllocated()).isEqualTo(2);
+            }
+        }));
+
+        assertThat(receiveDeadLetter()).isEqualTo(poisonId);
+
+        assertThat(counter("beer.order.jms.batch.failures")).isGreaterThan(failedBatchesBefore);
+        // counted once the JMS session has committed, just after the orders are saved
+        await().untilAsserted(() ->
+                assertThat(counter("beer.order.jms.batch.messages") - appliedBefore).isEqualTo(ORDERS));
+        // a response applied twice would send a second, rejected, ALLOCATION_SUCCESS event
+        assertThat(allocationSuccessEvents() - eventsBefore).isEqualTo(ORDERS);
+    }
+
+    private String sendWithPoison(List<BeerOrderDto> orders) throws Exception {
+        try (Connection connection = connectionFactory.createConnection();
+             Session session = connection.createSession(true, Session.SESSION_TRANSACTED)) {
+            MessageProducer producer = session.createProducer(session.createQueue(JmsConfig.ALLOCATE_ORDER_RESPONSE_QUEUE));
+            String poisonId = null;
+
+            for (int i = 0; i < orders.size(); i++) {
+                if (i == orders.size() / 2) {
+                    TextMessage poison = session.createTextMessage("{\"beerOrderDto\": not json");
+                    poison.setStringProperty(EventPayloadConverter.TYPE_ID_PROPERTY, AllocateOrderResponse.class.getName());
+                    producer.send(poison);
+                    poisonId = poison.getJMSMessageID();
+                }
+
+                producer.send(messageConverter.toMessage(AllocateOrderResponse.builder()
+                        .beerOrderDto(orders.get(i))
+                        .pendingInventory(false)
+                        .allocationError(false)
+                        .build(), session));
+            }
+
+            // all in one commit, so the consumer finds them together
+            session.commit();
+            return poisonId;
+        }
+    }
+
+    private String receiveDeadLetter() throws Exception {
+        try (Connection connection = connectionFactory.createConnection();
+             Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE)) {
+            connection.start();
+            Message deadLetter = session.createConsumer(session.createQueue(DEAD_LETTER_QUEUE)).receive(10_000);
+
+            return deadLetter != null ? deadLetter.getJMSMessageID() : null;
+        }
+    }
+
+    private BeerOrderDto createAllocationPendingOrder(Customer customer) {
+        return transactionTemplate.execute(status -> {
+            BeerOrder beerOrder = BeerOrder.builder()
+                    .customer(customer)
+                    .orderStatus(BeerOrderStatusEnum.ALLOCATION_PENDING)
+                    .build();
+
+            beerOrder.setBeerOrderLines(Set.of(BeerOrderLine.builder()
+                    .beerId(UUID.randomUUID())
+                    .upc("12345")
+                    .orderQuantity(2)
+                    .beerOrder(beerOrder)
+                    .build()));
+
+            BeerOrder saved = beerOrderRepository.saveAndFlush(beerOrder);
+            BeerOrderLine line = saved.getBeerOrderLines().iterator().next();
+
+            return BeerOrderDto.builder()
+                    .id(saved.getId())
+                    .beerOrderLines(List.of(BeerOrderLineDto.builder()
+                            .id(line.getId())
+                            .orderQuantity(2)
+                            .quantityAllocated(2)
+                            .build()))
+                    .build();
+        });
+    }
+
+    private double allocationSuccessEvents() {
+        return meterRegistry.get("beer.order.events").tag("event", "ALLOCATION_SUCCESS").counter().count();
+    }
+
+    private double counter(String name) {
+        return meterRegistry.find(name).tag("queue", JmsConfig.ALLOCATE_ORDER_RESPONSE_QUEUE).counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+}
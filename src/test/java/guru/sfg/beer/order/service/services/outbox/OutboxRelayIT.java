@@ -0,0 +1,101 @@
+package guru.sfg.beer.order.service.services.outbox;
+
+import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.beer.order.service.repositories.OutboxMessageRepository;
+import guru.sfg.brewery.model.BeerOrderDto;
+import guru.sfg.brewery.model.events.DeallocateOrderRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Runs against the embedded H2 database and Artemis broker. The deallocate queue has no listener in
+ * the test context, so published messages can be read back directly.
+ */
+@SpringBootTest
+public class OutboxRelayIT {
+
+    @Autowired
+    OutboxService outboxService;
+
+    @Autowired
+    OutboxMessageRepository outboxMessageRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JmsTemplate jmsTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jmsTemplate.setReceiveTimeout(100);
+        while (jmsTemplate.receive(JmsConfig.DEALLOCATE_ORDER_QUEUE) != null) {
+            // drain anything left over from earlier tests
+        }
+    }
+
+    @Test
+    void testCommittedMessagesArePublishedInOrderPerOrder() {
+        List<UUID> orderIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int sequence = 0; sequence < 10; sequence++) {
+                for (UUID orderId : orderIds) {
+                    outboxService.enqueue(JmsConfig.DEALLOCATE_ORDER_QUEUE, orderId, request(orderId, sequence));
+                }
+            }
+        });
+
+        Map<UUID, List<Integer>> received = new HashMap<>();
+        jmsTemplate.setReceiveTimeout(5000);
+
+        for (int i = 0; i < 30; i++) {
+            DeallocateOrderRequest request = (DeallocateOrderRequest) jmsTemplate.receiveAndConvert(JmsConfig.DEALLOCATE_ORDER_QUEUE);
+            assertThat(request).isNotNull();
+
+            received.computeIfAbsent(request.getBeerOrderDto().getId(), id -> new ArrayList<>())
+                    .add(Integer.valueOf(request.getBeerOrderDto().getCustomerRef()));
+        }
+
+        orderIds.forEach(orderId -> assertThat(received.get(orderId)).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+
+        await().untilAsserted(() -> assertThat(outboxMessageRepository.count()).isZero());
+    }
+
+    @Test
+    void testRolledBackMessagesAreNotPublished() {
+        UUID orderId = UUID.randomUUID();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxService.enqueue(JmsConfig.DEALLOCATE_ORDER_QUEUE, orderId, request(orderId, 0));
+            status.setRollbackOnly();
+        });
+
+        assertThat(outboxMessageRepository.count()).isZero();
+
+        jmsTemplate.setReceiveTimeout(1000);
+        assertThat(jmsTemplate.receive(JmsConfig.DEALLOCATE_ORDER_QUEUE)).isNull();
+    }
+
+    private DeallocateOrderRequest request(UUID orderId, int sequence) {
+        return DeallocateOrderRequest.builder()
+                .beerOrderDto(BeerOrderDto.builder()
+                        .id(orderId)
+                        .customerRef(String.valueOf(sequence))
+                        .build())
+                .build();
+    }
+}
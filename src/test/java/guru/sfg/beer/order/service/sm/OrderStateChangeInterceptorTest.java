@@ -0,0 +1,148 @@
+package guru.sfg.beer.order.service.sm;
+
+import guru.sfg.beer.order.service.config.JmsConfig;
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderEventsEnum;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.statemachine.StateMachine;
+import org.springframework.statemachine.config.StateMachineFactory;
+import org.springframework.statemachine.state.State;
+import org.springframework.statemachine.transition.Transition;
+import org.springframework.statemachine.trigger.Trigger;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderStateChangeInterceptorTest {
+
+    SimpleMeterRegistry meterRegistry;
+    BeerOrderRepository beerOrderRepository;
+    OrderStateChangeInterceptor interceptor;
+    BeerOrder beerOrder;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        beerOrder = BeerOrder.builder().id(UUID.randomUUID()).build();
+
+        beerOrderRepository = mock(BeerOrderRepository.class);
+        when(beerOrderRepository.getOne(any())).thenReturn(beerOrder);
+
+        // the configured transitions these tests fire
+        List<Transition<BeerOrderStatusEnum, BeerOrderEventsEnum>> transitions = List.of(
+                transition(BeerOrderEventsEnum.VALIDATION_PASSED, BeerOrderStatusEnum.VALIDATION_PENDING, BeerOrderStatusEnum.VALIDATED),
+                transition(BeerOrderEventsEnum.CANCEL_ORDER, BeerOrderStatusEnum.ALLOCATION_PENDING, BeerOrderStatusEnum.CANCELLED));
+        StateMachine<BeerOrderStatusEnum, BeerOrderEventsEnum> stateMachine = mock(StateMachine.class);
+        when(stateMachine.getTransitions()).thenReturn(transitions);
+        StateMachineFactory<BeerOrderStatusEnum, BeerOrderEventsEnum> stateMachineFactory = mock(StateMachineFactory.class);
+        when(stateMachineFactory.getStateMachine()).thenReturn(stateMachine);
+
+        interceptor = new OrderStateChangeInterceptor(beerOrderRepository, new OrderStatusAwaiter(meterRegistry, 1000),
+                stateMachineFactory, meterRegistry);
+    }
+
+    @Test
+    void recordsEventTransitionAndRoundTrip() {
+        beerOrder.setOrderStatus(BeerOrderStatusEnum.VALIDATION_PENDING);
+        beerOrder.setLastModifiedDate(new Timestamp(System.currentTimeMillis() - 250));
+
+        fire(BeerOrderEventsEnum.VALIDATION_PASSED, BeerOrderStatusEnum.VALIDATION_PENDING, BeerOrderStatusEnum.VALIDATED);
+
+        assertThat(meterRegistry.get("beer.order.events").tag("event", "VALIDATION_PASSED").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("beer.order.transition")
+                .tag("source", "VALIDATION_PENDING")
+                .tag("target", "VALIDATED")
+                .tag("event", "VALIDATION_PASSED")
+                .timer().count()).isEqualTo(1);
+
+        Timer stateTimer = meterRegistry.get("beer.order.state.duration").tag("status", "VALIDATION_PENDING").timer();
+        assertThat(stateTimer.count()).isEqualTo(1);
+        assertThat(stateTimer.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(250);
+
+        Timer roundTripTimer = meterRegistry.get("beer.order.jms.round.trip")
+                .tag("request", JmsConfig.VALIDATE_ORDER_QUEUE)
+                .tag("response", JmsConfig.VALIDATE_ORDER_RESPONSE_QUEUE)
+                .timer();
+        assertThat(roundTripTimer.count()).isEqualTo(1);
+        assertThat(roundTripTimer.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(250);
+        assertThat(meterRegistry.get("beer.order.jms.round.trip").tag("request", JmsConfig.ALLOCATE_ORDER_QUEUE)
+                .timer().count()).isZero();
+    }
+
+    @Test
+    void cancelWhilePendingIsNotARoundTrip() {
+        beerOrder.setOrderStatus(BeerOrderStatusEnum.ALLOCATION_PENDING);
+        beerOrder.setLastModifiedDate(new Timestamp(System.currentTimeMillis()));
+
+        fire(BeerOrderEventsEnum.CANCEL_ORDER, BeerOrderStatusEnum.ALLOCATION_PENDING, BeerOrderStatusEnum.CANCELLED);
+
+        assertThat(meterRegistry.get("beer.order.state.duration").tag("status", "ALLOCATION_PENDING").timer().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("beer.order.jms.round.trip").tag("request", JmsConfig.ALLOCATE_ORDER_QUEUE)
+                .timer().count()).isZero();
+    }
+
+    @Test
+    void failedSaveRecordsNoTimeInStatus() {
+        beerOrder.setOrderStatus(BeerOrderStatusEnum.VALIDATION_PENDING);
+        beerOrder.setLastModifiedDate(new Timestamp(System.currentTimeMillis()));
+        doThrow(new IllegalStateException("stale order")).when(beerOrderRepository).updateOrderStatus(any(), any());
+
+        assertThatThrownBy(() -> fire(BeerOrderEventsEnum.VALIDATION_PASSED, BeerOrderStatusEnum.VALIDATION_PENDING,
+                BeerOrderStatusEnum.VALIDATED)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(meterRegistry.get("beer.order.events").tag("event", "VALIDATION_PASSED").counter().count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.get("beer.order.state.duration").tag("status", "VALIDATION_PENDING").timer().count())
+                .isZero();
+        // registered up front for each configured transition, none of them recorded
+        assertThat(meterRegistry.find("beer.order.transition").timers()).hasSize(2)
+                .allSatisfy(timer -> assertThat(timer.count()).isZero());
+    }
+
+    private void fire(BeerOrderEventsEnum event, BeerOrderStatusEnum source, BeerOrderStatusEnum target) {
+        Message<BeerOrderEventsEnum> message = MessageBuilder.withPayload(event)
+                .setHeader(BeerOrderManagerImpl.ORDER_ID_HEADER, beerOrder.getId().toString())
+                .build();
+        Transition<BeerOrderStatusEnum, BeerOrderEventsEnum> transition = transition(event, source, target);
+
+        interceptor.preEvent(message, null);
+        interceptor.preStateChange(transition.getTarget(), message, transition, null);
+        interceptor.postStateChange(transition.getTarget(), message, transition, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Transition<BeerOrderStatusEnum, BeerOrderEventsEnum> transition(BeerOrderEventsEnum event,
+            BeerOrderStatusEnum source, BeerOrderStatusEnum target) {
+        State<BeerOrderStatusEnum, BeerOrderEventsEnum> sourceState = mock(State.class);
+        State<BeerOrderStatusEnum, BeerOrderEventsEnum> targetState = mock(State.class);
+        Trigger<BeerOrderStatusEnum, BeerOrderEventsEnum> trigger = mock(Trigger.class);
+        Transition<BeerOrderStatusEnum, BeerOrderEventsEnum> transition = mock(Transition.class);
+        when(sourceState.getId()).thenReturn(source);
+        when(targetState.getId()).thenReturn(target);
+        when(trigger.getEvent()).thenReturn(event);
+        when(transition.getSource()).thenReturn(sourceState);
+        when(transition.getTarget()).thenReturn(targetState);
+        when(transition.getTrigger()).thenReturn(trigger);
+        return transition;
+    }
+}
@@ -0,0 +1,206 @@
+package guru.sfg.beer.order.service.sm;
+
+import guru.sfg.beer.order.service.domain.BeerOrder;
+import guru.sfg.beer.order.service.domain.BeerOrderEventsEnum;
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import guru.sfg.beer.order.service.repositories.BeerOrderRepository;
+import guru.sfg.beer.order.service.services.BeerOrderManagerImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.statemachine.action.Action;
+import org.springframework.statemachine.config.StateMachineFactory;
+import org.springframework.statemachine.transition.Transition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs every status/event combination through both state engines and checks they accept or reject the
+ * event as configured, trigger the same actions and save the same target status.
+ */
+class OrderStateEngineConformanceTest {
+
+    static final List<String> ACTION_BEAN_NAMES = Arrays.asList("validateOrderAction", "allocateOrderAction",
+            "validationFailedAction", "allocationFailedAction", "deallocateOrderAction");
+
+    static AnnotationConfigApplicationContext context;
+    static OrderStateEngine springEngine;
+    static OrderStateEngine enumTableEngine;
+    static final Map<BeerOrderStatusEnum, Map<BeerOrderEventsEnum, Transition<BeerOrderStatusEnum, BeerOrderEventsEnum>>>
+            configuredTransitions = new EnumMap<>(BeerOrderStatusEnum.class);
+
+    static final List<String> invokedActions = new ArrayList<>();
+    static final List<BeerOrderStatusEnum> savedStatuses = new ArrayList<>();
+    static boolean failActions;
+
+    @BeforeAll
+    @SuppressWarnings("unchecked")
+    static void setUpEngines() {
+        context = new AnnotationConfigApplicationContext();
+        ACTION_BEAN_NAMES.forEach(name -> context.registerBean(name, Action.class, () -> recordingAction(name)));
+        context.register(BeerOrderStateMachineConfig.class);
+        context.refresh();
+
+        BeerOrderRepository beerOrderRepository = mock(BeerOrderRepository.class);
+        when(beerOrderRepository.getOne(any())).thenAnswer(invocation -> new BeerOrder());
+        doAnswer(invocation -> savedStatuses.add(invocation.getArgument(1)))
+                .when(beerOrderRepository).updateOrderStatus(any(), any());
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StateMachineFactory<BeerOrderStatusEnum, BeerOrderEventsEnum> factory = context.getBean(StateMachineFactory.class);
+        OrderStateChangeInterceptor interceptor =
+                new OrderStateChangeInterceptor(beerOrderRepository, new OrderStatusAwaiter(meterRegistry, 1000),
+                        factory, meterRegistry);
+
+        springEngine = new BeerOrderStateMachinePool(factory, interceptor, meterRegistry, 4);
+        enumTableEngine = new EnumTableStateEngine(factory, interceptor);
+
+        for (Transition<BeerOrderStatusEnum, BeerOrderEventsEnum> transition : factory.getStateMachine().getTransitions()) {
+            if (transition.getTrigger() != null) {
+                configuredTransitions.computeIfAbsent(transition.getSource().getId(), status -> new EnumMap<>(BeerOrderEventsEnum.class))
+                        .put(transition.getTrigger().getEvent(), transition);
+            }
+        }
+    }
+
+    @AfterAll
+    static void closeContext() {
+        context.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        failActions = false;
+    }
+
+    static Stream<Arguments> statusEventCombinations() {
+        return Arrays.stream(BeerOrderStatusEnum.values())
+                .flatMap(status -> Arrays.stream(BeerOrderEventsEnum.values())
+                        .map(event -> Arguments.of(status, event)));
+    }
+
+    @ParameterizedTest(name = "{0} + {1}")
+    @MethodSource("statusEventCombinations")
+    void enginesProduceSameTransition(BeerOrderStatusEnum status, BeerOrderEventsEnum event) {
+        Transition<BeerOrderStatusEnum, BeerOrderEventsEnum> transition = configuredTransition(status, event);
+
+        for (OrderStateEngine engine : Arrays.asList(springEngine, enumTableEngine)) {
+            Outcome outcome = run(engine, status, event);
+
+            if (transition == null) {
+                assertFalse(outcome.accepted, engine + " accepted " + event + " in " + status);
+                assertEquals(Collections.emptyList(), outcome.savedStatuses);
+                assertEquals(Collections.emptyList(), outcome.invokedActions);
+            } else {
+                assertTrue(outcome.accepted, engine + " rejected " + event + " in " + status);
+                assertEquals(Collections.singletonList(transition.getTarget().getId()), outcome.savedStatuses);
+            }
+        }
+
+        assertEquals(run(springEngine, status, event), run(enumTableEngine, status, event));
+    }
+
+    @ParameterizedTest(name = "{0} + {1} with failing action")
+    @MethodSource("statusEventCombinations")
+    void enginesAbortSameTransitionWhenActionFails(BeerOrderStatusEnum status, BeerOrderEventsEnum event) {
+        failActions = true;
+        Transition<BeerOrderStatusEnum, BeerOrderEventsEnum> transition = configuredTransition(status, event);
+
+        for (OrderStateEngine engine : Arrays.asList(springEngine, enumTableEngine)) {
+            Outcome outcome = run(engine, status, event);
+
+            assertEquals(transition != null, outcome.accepted, engine + " on " + event + " in " + status);
+
+            if (transition == null || !transition.getActions().isEmpty()) {
+                assertEquals(Collections.emptyList(), outcome.savedStatuses);
+            } else {
+                assertEquals(Collections.singletonList(transition.getTarget().getId()), outcome.savedStatuses);
+            }
+        }
+
+        assertEquals(run(springEngine, status, event), run(enumTableEngine, status, event));
+    }
+
+    private static Transition<BeerOrderStatusEnum, BeerOrderEventsEnum> configuredTransition(BeerOrderStatusEnum status,
+                                                                                           BeerOrderEventsEnum event) {
+        return configuredTransitions.getOrDefault(status, Collections.emptyMap()).get(event);
+    }
+
+    private static Outcome run(OrderStateEngine engine, BeerOrderStatusEnum status, BeerOrderEventsEnum event) {
+        invokedActions.clear();
+        savedStatuses.clear();
+
+        Message<BeerOrderEventsEnum> message = MessageBuilder.withPayload(event)
+                .setHeader(BeerOrderManagerImpl.ORDER_ID_HEADER, UUID.randomUUID().toString())
+                .build();
+
+        boolean accepted = engine.sendEvent(status, message);
+
+        return new Outcome(accepted, new ArrayList<>(invokedActions), new ArrayList<>(savedStatuses));
+    }
+
+    private static Action<BeerOrderStatusEnum, BeerOrderEventsEnum> recordingAction(String name) {
+        return stateContext -> {
+            invokedActions.add(name);
+
+            if (failActions) {
+                throw new IllegalStateException("Failing " + name);
+            }
+        };
+    }
+
+    private static class Outcome {
+        final boolean accepted;
+        final List<String> invokedActions;
+        final List<BeerOrderStatusEnum> savedStatuses;
+
+        Outcome(boolean accepted, List<String> invokedActions, List<BeerOrderStatusEnum> savedStatuses) {
+            this.accepted = accepted;
+            this.invokedActions = invokedActions;
+            this.savedStatuses = savedStatuses;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Outcome)) {
+                return false;
+            }
+            Outcome other = (Outcome) o;
+            return accepted == other.accepted && invokedActions.equals(other.invokedActions)
+                    && savedStatuses.equals(other.savedStatuses);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accepted, invokedActions, savedStatuses);
+        }
+
+        @Override
+        public String toString() {
+            return "accepted=" + accepted + ", actions=" + invokedActions + ", saved=" + savedStatuses;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package guru.sfg.beer.order.service.sm;
+
+import guru.sfg.beer.order.service.domain.BeerOrderStatusEnum;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class OrderStatusAwaiterTest {
+
+    SimpleMeterRegistry meterRegistry;
+    UUID beerOrderId;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        beerOrderId = UUID.randomUUID();
+    }
+
+    @Test
+    void reachedWhenStatusIsSavedDuringTheTrigger() {
+        OrderStatusAwaiter awaiter = new OrderStatusAwaiter(meterRegistry, 60_000);
+
+        boolean reached = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                awaiter.sendAndAwait(beerOrderId, BeerOrderStatusEnum.VALIDATED, () -> {
+                    awaiter.statusChanged(beerOrderId, BeerOrderStatusEnum.VALIDATED);
+                    return true;
+                }));
+
+        assertThat(reached).isTrue();
+        assertThat(awaitCount("reached")).isEqualTo(1);
+    }
+
+    @Test
+    void reachedWhenStatusIsSavedOnAnotherThread() {
+        OrderStatusAwaiter awaiter = new OrderStatusAwaiter(meterRegistry, 60_000);
+
+        boolean reached = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                awaiter.sendAndAwait(beerOrderId, BeerOrderStatusEnum.ALLOCATED, () -> {
+                    CompletableFuture.runAsync(() -> awaiter.statusChanged(beerOrderId, BeerOrderStatusEnum.ALLOCATED));
+                    return true;
+                }));
+
+        assertThat(reached).isTrue();
+        assertThat(awaitCount("reached")).isEqualTo(1);
+    }
+
+    @Test
+    void rejectedEventReturnsWithoutWaiting() {
+        // a wait would run into the test timeout long before the awaiter's own
+        OrderStatusAwaiter awaiter = new OrderStatusAwaiter(meterRegistry, 60_000);
+
+        boolean reached = assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                awaiter.sendAndAwait(beerOrderId, BeerOrderStatusEnum.VALIDATED, () -> false));
+
+        assertThat(reached).isFalse();
+        assertThat(awaitCount("rejected")).isEqualTo(1);
+        assertThat(awaitCount("timeout")).isZero();
+    }
+
+    @Test
+    void timeoutWhenStatusIsNeverSaved() {
+        OrderStatusAwaiter awaiter = new OrderStatusAwaiter(meterRegistry, 50);
+
+        assertThatThrownBy(() -> awaiter.sendAndAwait(beerOrderId, BeerOrderStatusEnum.PENDING_INVENTORY, () -> true))
+                .isInstanceOf(OrderStatusTimeoutException.class)
+                .hasMessageContaining(beerOrderId.toString());
+
+        assertThat(meterRegistry.get("beer.order.status.await")
+                .tag("status", BeerOrderStatusEnum.PENDING_INVENTORY.name())
+                .tag("outcome", "timeout")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void otherStatusDoesNotCompleteTheWait() {
+        OrderStatusAwaiter awaiter = new OrderStatusAwaiter(meterRegistry, 50);
+
+        assertThatThrownBy(() -> awaiter.sendAndAwait(beerOrderId, BeerOrderStatusEnum.ALLOCATED, () -> {
+            awaiter.statusChanged(beerOrderId, BeerOrderStatusEnum.PENDING_INVENTORY);
+            awaiter.statusChanged(UUID.randomUUID(), BeerOrderStatusEnum.ALLOCATED);
+            return true;
+        })).isInstanceOf(OrderStatusTimeoutException.class);
+    }
+
+    @Test
+    void triggerFailureIsRethrown() {
+        OrderStatusAwaiter awaiter = new OrderStatusAwaiter(meterRegistry, 60_000);
+
+        assertThatThrownBy(() -> awaiter.sendAndAwait(beerOrderId, BeerOrderStatusEnum.VALIDATED, () -> {
+            throw new IllegalStateException("save failed");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("save failed");
+
+        assertThat(awaitCount("error")).isEqualTo(1);
+    }
+
+    private long awaitCount(String outcome) {
+        return meterRegistry.get("beer.order.status.await").tag("outcome", outcome).timers().stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+}